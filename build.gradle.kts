@@ -22,13 +22,13 @@ dependencies {
 
     testImplementation("org.awaitility:awaitility-kotlin:4.1.0")
 
+    testImplementation("org.jgrapht:jgrapht-core:1.5.1")
+
     implementation("io.github.microutils:kotlin-logging-jvm:2.0.6")
     implementation("org.slf4j:slf4j-simple:1.7.30")
 
     implementation("no.tornado:tornadofx:2.0.0-SNAPSHOT")
 
-    implementation("org.jgrapht:jgrapht-core:1.5.1")
-
     implementation("org.neo4j.driver:neo4j-java-driver:4.2.0")
 
     implementation("org.xerial:sqlite-jdbc:3.34.0")
@@ -52,6 +52,23 @@ tasks {
     }
 
     test {
-        useJUnitPlatform()
+        useJUnitPlatform {
+            excludeTags("benchmark")
+        }
+    }
+
+    register<Test>("benchmark") {
+        description = "Runs the performance benchmarks."
+        group = "verification"
+
+        testClassesDirs = sourceSets.test.get().output.classesDirs
+        classpath = sourceSets.test.get().runtimeClasspath
+
+        useJUnitPlatform {
+            includeTags("benchmark")
+        }
+
+        maxHeapSize = "4g"
+        testLogging.showStandardStreams = true
     }
 }
@@ -48,6 +48,59 @@ public abstract class CPMClusteringAlgorithm implements Cloneable
         }
     }
 
+    /**
+     * Calculates the quality of a clustering using the CPM quality function.
+     *
+     * <p>
+     * The CPM quality function is given by
+     * </p>
+     *
+     * <blockquote>
+     * 1 / (2 * m) * sum(d(c[i], c[j]) * (a[i][j] - gamma * n[i] * n[j])),
+     * </blockquote>
+     *
+     * <p>
+     * where {@code a[i][j]} is the weight of the edge between nodes {@code i}
+     * and {@code j}, {@code n[i]} is the weight of node {@code i}, {@code m}
+     * is the total edge weight, and {@code gamma} is the resolution parameter.
+     * The function {@code d(c[i], c[j])} equals 1 if nodes {@code i} and
+     * {@code j} belong to the same cluster and 0 otherwise. The sum is taken
+     * over all pairs of nodes {@code i} and {@code j}.
+     * </p>
+     *
+     * @param network    Network
+     * @param clustering Clustering
+     *
+     * @return Quality of the clustering
+     */
+    public double calcQuality(Network network, Clustering clustering)
+    {
+        double quality;
+        double[] clusterWeights;
+        int i, j, k;
+
+        quality = 0;
+
+        for (i = 0; i < network.nNodes; i++)
+        {
+            j = clustering.clusters[i];
+            for (k = network.firstNeighborIndices[i]; k < network.firstNeighborIndices[i + 1]; k++)
+                if (clustering.clusters[network.neighbors[k]] == j)
+                    quality += network.edgeWeights[k];
+        }
+        quality += network.totalEdgeWeightSelfLinks;
+
+        clusterWeights = new double[clustering.nClusters];
+        for (i = 0; i < network.nNodes; i++)
+            clusterWeights[clustering.clusters[i]] += network.nodeWeights[i];
+        for (i = 0; i < clustering.nClusters; i++)
+            quality -= clusterWeights[i] * clusterWeights[i] * resolution;
+
+        quality /= 2 * network.getTotalEdgeWeight() + network.totalEdgeWeightSelfLinks;
+
+        return quality;
+    }
+
     /**
      * Returns the resolution parameter.
      *
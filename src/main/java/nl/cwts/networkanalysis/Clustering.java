@@ -43,6 +43,28 @@ public class Clustering implements Cloneable, Serializable
         initSingletonClustersHelper();
     }
 
+    /**
+     * Constructs a clustering using a specified cluster for each node.
+     *
+     * <p>
+     * The clusters must be given by integers from 0 to the number of
+     * clusters minus one. The array is used as is, it is not copied.
+     * </p>
+     *
+     * @param clusters Cluster of each node
+     */
+    public Clustering(int[] clusters)
+    {
+        int i;
+
+        nNodes = clusters.length;
+        this.clusters = clusters;
+        nClusters = 0;
+        for (i = 0; i < nNodes; i++)
+            if (clusters[i] >= nClusters)
+                nClusters = clusters[i] + 1;
+    }
+
     /**
      * Clones the clustering.
      *
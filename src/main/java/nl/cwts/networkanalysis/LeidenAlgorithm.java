@@ -1,6 +1,13 @@
 package nl.cwts.networkanalysis;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Leiden algorithm.
@@ -23,6 +30,13 @@ import java.util.Random;
  * FastLocalMovingAlgorithm}.
  * </p>
  *
+ * <p>
+ * The refinement of different clusters is independent, so it can be performed
+ * by multiple threads. Each cluster is refined using its own random number
+ * generator, seeded from the random number generator of the algorithm. The
+ * results therefore do not depend on the number of threads.
+ * </p>
+ *
  * @author Ludo Waltman
  * @author Nees Jan van Eck
  * @author Vincent Traag
@@ -40,11 +54,39 @@ public class LeidenAlgorithm extends IterativeCPMClusteringAlgorithm
      */
     protected IncrementalCPMClusteringAlgorithm localMovingAlgorithm;
 
+    /**
+     * Number of threads used in the refinement phase.
+     */
+    protected int nThreads;
+
     /**
      * Random number generator.
      */
     protected Random random;
 
+    /**
+     * Thread pool given to the algorithm for the refinement phase, shared
+     * between clones of the algorithm, or null if a pool is created for each
+     * run.
+     */
+    protected ForkJoinPool sharedPool;
+
+    /**
+     * Thread pool used in the refinement phase of the current run, or null if
+     * the run uses a single thread.
+     */
+    protected ForkJoinPool pool;
+
+    /**
+     * Arena holding the subnetworks refined in the refinement phase.
+     */
+    protected SubnetworkArena subnetworkArena;
+
+    /**
+     * Local merging algorithms used in the refinement phase, one per thread.
+     */
+    protected LocalMergingAlgorithm[] localMergingAlgorithms;
+
     /**
      * Constructs a Leiden algorithm for a specified resolution parameter,
      * number of iterations, and randomness parameter.
@@ -70,14 +112,60 @@ public class LeidenAlgorithm extends IterativeCPMClusteringAlgorithm
      * @param random               Random number generator
      */
     public LeidenAlgorithm(double resolution, int nIterations, double randomness, IncrementalCPMClusteringAlgorithm localMovingAlgorithm, Random random)
+    {
+        this(resolution, nIterations, randomness, localMovingAlgorithm, 1, random);
+    }
+
+    /**
+     * Constructs a Leiden algorithm for a specified resolution parameter,
+     * number of iterations, randomness parameter, local moving algorithm, and
+     * number of threads used in the refinement phase.
+     *
+     * @param resolution           Resolution parameter
+     * @param nIterations          Number of iterations
+     * @param randomness           Randomness parameter
+     * @param localMovingAlgorithm Local moving algorithm
+     * @param nThreads             Number of threads
+     * @param random               Random number generator
+     */
+    public LeidenAlgorithm(double resolution, int nIterations, double randomness, IncrementalCPMClusteringAlgorithm localMovingAlgorithm, int nThreads, Random random)
     {
         super(resolution, nIterations);
+        if (nThreads < 1)
+            throw new IllegalArgumentException("nThreads must be positive.");
 
         this.randomness = randomness;
+        this.nThreads = nThreads;
         this.random = random;
+        subnetworkArena = new SubnetworkArena();
         setLocalMovingAlgorithm(localMovingAlgorithm);
     }
 
+    /**
+     * Constructs a Leiden algorithm for a specified resolution parameter,
+     * number of iterations, randomness parameter, local moving algorithm, and
+     * thread pool used in the refinement phase.
+     *
+     * <p>
+     * The pool is owned by the caller, which shuts it down when it is no
+     * longer needed. The refinement phase uses as many threads as the
+     * parallelism of the pool.
+     * </p>
+     *
+     * @param resolution           Resolution parameter
+     * @param nIterations          Number of iterations
+     * @param randomness           Randomness parameter
+     * @param localMovingAlgorithm Local moving algorithm
+     * @param pool                 Thread pool
+     * @param random               Random number generator
+     */
+    public LeidenAlgorithm(double resolution, int nIterations, double randomness, IncrementalCPMClusteringAlgorithm localMovingAlgorithm, ForkJoinPool pool, Random random)
+    {
+        this(resolution, nIterations, randomness, localMovingAlgorithm, pool.getParallelism(), random);
+        sharedPool = pool;
+        this.pool = pool;
+    }
+
     /**
      * Clones the algorithm.
      *
@@ -89,6 +177,8 @@ public class LeidenAlgorithm extends IterativeCPMClusteringAlgorithm
 
         LeidenAlgorithm = (LeidenAlgorithm)super.clone();
         LeidenAlgorithm.localMovingAlgorithm = (IncrementalCPMClusteringAlgorithm)localMovingAlgorithm.clone();
+        LeidenAlgorithm.subnetworkArena = new SubnetworkArena();
+        LeidenAlgorithm.localMergingAlgorithms = null;
         return LeidenAlgorithm;
     }
 
@@ -117,6 +207,38 @@ public class LeidenAlgorithm extends IterativeCPMClusteringAlgorithm
         this.localMovingAlgorithm.resolution = resolution;
     }
 
+    /**
+     * Improves a clustering by performing multiple iterations of the Leiden
+     * algorithm.
+     *
+     * <p>
+     * Unless a pool has been given to the algorithm, a pool of the specified
+     * number of threads is created for the run and shut down at its end.
+     * </p>
+     *
+     * @param network    Network
+     * @param clustering Clustering
+     *
+     * @return Boolean indicating whether the clustering has been improved
+     */
+    @Override
+    public boolean improveClustering(Network network, Clustering clustering)
+    {
+        if ((sharedPool != null) || (nThreads == 1))
+            return super.improveClustering(network, clustering);
+
+        pool = new ForkJoinPool(nThreads);
+        try
+        {
+            return super.improveClustering(network, clustering);
+        }
+        finally
+        {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
     /**
      * Improves a clustering by performing one iteration of the Leiden
      * algorithm.
@@ -145,12 +267,9 @@ public class LeidenAlgorithm extends IterativeCPMClusteringAlgorithm
     protected boolean improveClusteringOneIteration(Network network, Clustering clustering)
     {
         boolean update;
-        Clustering clusteringReducedNetwork, clusteringSubnetwork, refinement;
+        Clustering clusteringReducedNetwork, refinement;
         int i, j;
-        int[][] nodesPerCluster;
-        LocalMergingAlgorithm localMergingAlgorithm;
         Network reducedNetwork;
-        Network[] subnetworks;
 
         // Update the clustering by moving individual nodes between clusters.
         update = localMovingAlgorithm.improveClustering(network, clustering);
@@ -166,19 +285,16 @@ public class LeidenAlgorithm extends IterativeCPMClusteringAlgorithm
              * Refine the clustering by iterating over the clusters and by
              * trying to split up each cluster into multiple clusters.
              */
-            localMergingAlgorithm = new LocalMergingAlgorithm(resolution, randomness, random);
-            subnetworks = network.createSubnetworks(clustering);
-            nodesPerCluster = clustering.getNodesPerCluster();
+            subnetworkArena.fill(network, clustering);
+            refineSubnetworks(subnetworkArena, random.nextLong());
             refinement = new Clustering(network.nNodes);
             refinement.nClusters = 0;
-            for (i = 0; i < subnetworks.length; i++)
+            for (i = 0; i < subnetworkArena.nSubnetworks; i++)
             {
-                clusteringSubnetwork = localMergingAlgorithm.findClustering(subnetworks[i]);
-
-                for (j = 0; j < subnetworks[i].nNodes; j++)
-                    refinement.clusters[nodesPerCluster[i][j]] = refinement.nClusters + clusteringSubnetwork.clusters[j];
+                for (j = subnetworkArena.firstNodeIndices[i]; j < subnetworkArena.firstNodeIndices[i + 1]; j++)
+                    refinement.clusters[subnetworkArena.nodes[j]] = refinement.nClusters + subnetworkArena.clusters[j];
 
-                refinement.nClusters += clusteringSubnetwork.nClusters;
+                refinement.nClusters += subnetworkArena.nClustersPerSubnetwork[i];
             }
 
             if (refinement.nClusters < network.nNodes)
@@ -233,4 +349,96 @@ public class LeidenAlgorithm extends IterativeCPMClusteringAlgorithm
 
         return update;
     }
+
+    /**
+     * Refines the clusters by applying the local merging algorithm to each
+     * subnetwork in an arena.
+     *
+     * <p>
+     * The subnetworks are distributed dynamically over the threads. Each
+     * thread uses its own local merging algorithm, which is reseeded for each
+     * subnetwork based on the index of the subnetwork. The clustering of a
+     * subnetwork therefore does not depend on the thread that refines it.
+     * </p>
+     *
+     * @param arena Arena
+     * @param seed  Seed from which the seeds of the subnetworks are derived
+     */
+    private void refineSubnetworks(SubnetworkArena arena, long seed)
+    {
+        AtomicInteger nextSubnetwork;
+        int t;
+        List<Callable<Void>> tasks;
+
+        if (localMergingAlgorithms == null)
+        {
+            localMergingAlgorithms = new LocalMergingAlgorithm[nThreads];
+            for (t = 0; t < nThreads; t++)
+                localMergingAlgorithms[t] = new LocalMergingAlgorithm(resolution, randomness, new Random());
+        }
+        for (t = 0; t < nThreads; t++)
+        {
+            localMergingAlgorithms[t].resolution = resolution;
+            localMergingAlgorithms[t].randomness = randomness;
+            localMergingAlgorithms[t].ensureCapacity(arena.maxSubnetworkSize);
+        }
+
+        nextSubnetwork = new AtomicInteger();
+
+        if ((pool == null) || (arena.nSubnetworks < 2))
+        {
+            refineSubnetworks(arena, seed, nextSubnetwork, localMergingAlgorithms[0]);
+            return;
+        }
+
+        tasks = new ArrayList<>(nThreads);
+        for (t = 0; t < Math.min(nThreads, arena.nSubnetworks); t++)
+        {
+            final LocalMergingAlgorithm localMergingAlgorithm = localMergingAlgorithms[t];
+            tasks.add(() ->
+            {
+                refineSubnetworks(arena, seed, nextSubnetwork, localMergingAlgorithm);
+                return null;
+            });
+        }
+
+        for (Future<Void> future : pool.invokeAll(tasks))
+            try
+            {
+                future.get();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Refinement has been interrupted.", e);
+            }
+            catch (ExecutionException e)
+            {
+                throw new IllegalStateException("Refinement has failed.", e.getCause());
+            }
+    }
+
+    private void refineSubnetworks(SubnetworkArena arena, long seed, AtomicInteger nextSubnetwork, LocalMergingAlgorithm localMergingAlgorithm)
+    {
+        int i;
+
+        while ((i = nextSubnetwork.getAndIncrement()) < arena.nSubnetworks)
+        {
+            // Singleton subnetworks are not refined, so they do not need a seed.
+            if (arena.getNNodes(i) > 1)
+                localMergingAlgorithm.random.setSeed(mixSeed(seed + (i + 1) * 0x9E3779B97F4A7C15L));
+            localMergingAlgorithm.findClustering(arena, i);
+        }
+    }
+
+    /**
+     * Scrambles the bits of a seed, so that nearby seeds result in unrelated
+     * random number sequences (SplitMix64 finalizer).
+     */
+    private static long mixSeed(long seed)
+    {
+        seed = (seed ^ (seed >>> 30)) * 0xBF58476D1CE4E5B9L;
+        seed = (seed ^ (seed >>> 27)) * 0x94D049BB133111EBL;
+        return seed ^ (seed >>> 31);
+    }
 }
@@ -45,6 +45,14 @@ public class LocalMergingAlgorithm extends CPMClusteringAlgorithm
      */
     protected Random random;
 
+    /*
+     * Working memory, allocated on first use and grown when a larger network
+     * is clustered.
+     */
+    private boolean[] nonSingletonClusters;
+    private double[] clusterWeights, cumTransformedQualityValueIncrementPerCluster, edgeWeightPerCluster, externalEdgeWeightPerCluster;
+    private int[] neighboringClusters, nodeOrder;
+
     /**
      * Constructs a local merging algorithm for a specified resolution
      * parameter and randomness parameter.
@@ -85,32 +93,94 @@ public class LocalMergingAlgorithm extends CPMClusteringAlgorithm
      * @return Clustering
      */
     public Clustering findClustering(Network network)
+    {
+        Clustering clustering;
+
+        clustering = new Clustering(network.nNodes);
+        clustering.nClusters = findClustering(network.nNodes, 0, network.nodeWeights, network.firstNeighborIndices, network.neighbors, network.edgeWeights, clustering.clusters);
+        return clustering;
+    }
+
+    /**
+     * Finds a clustering of the nodes in a subnetwork stored in an arena
+     * using the local merging algorithm.
+     *
+     * <p>
+     * The clustering is stored in the arena. The working memory of the
+     * algorithm is reused between calls, so an algorithm object should not be
+     * used by multiple threads at the same time.
+     * </p>
+     *
+     * @param arena      Arena
+     * @param subnetwork Subnetwork
+     *
+     * @return Number of clusters
+     */
+    public int findClustering(SubnetworkArena arena, int subnetwork)
+    {
+        int nClusters;
+
+        nClusters = findClustering(arena.getNNodes(subnetwork), arena.firstNodeIndices[subnetwork], arena.nodeWeights, arena.firstNeighborIndices, arena.neighbors, arena.edgeWeights, arena.clusters);
+        arena.nClustersPerSubnetwork[subnetwork] = nClusters;
+        return nClusters;
+    }
+
+    /**
+     * Clones the algorithm.
+     *
+     * <p>
+     * The clone gets its own working memory.
+     * </p>
+     *
+     * @return Cloned algorithm
+     */
+    public LocalMergingAlgorithm clone()
+    {
+        LocalMergingAlgorithm localMergingAlgorithm;
+
+        localMergingAlgorithm = (LocalMergingAlgorithm)super.clone();
+        localMergingAlgorithm.nonSingletonClusters = null;
+        localMergingAlgorithm.clusterWeights = null;
+        localMergingAlgorithm.cumTransformedQualityValueIncrementPerCluster = null;
+        localMergingAlgorithm.edgeWeightPerCluster = null;
+        localMergingAlgorithm.externalEdgeWeightPerCluster = null;
+        localMergingAlgorithm.neighboringClusters = null;
+        localMergingAlgorithm.nodeOrder = null;
+        return localMergingAlgorithm;
+    }
+
+    /*
+     * Finds a clustering of the nodes offset, ..., offset + nNodes - 1 of a
+     * sparse compressed adjacency in which neighbors are given relative to
+     * offset. The clusters are stored in clusters[offset], ...,
+     * clusters[offset + nNodes - 1] and the number of clusters is returned.
+     */
+    private int findClustering(int nNodes, int offset, double[] nodeWeights, int[] firstNeighborIndices, int[] neighbors, double[] edgeWeights, int[] clusters)
     {
         boolean update;
-        boolean[] nonSingletonClusters;
         double maxQualityValueIncrement, qualityValueIncrement, r, totalNodeWeight, totalTransformedQualityValueIncrement;
-        double[] clusterWeights, cumTransformedQualityValueIncrementPerCluster, edgeWeightPerCluster, externalEdgeWeightPerCluster;
-        int bestCluster, chosenCluster, i, j, k, l, max_idx, mid_idx, min_idx, nNeighboringClusters;
-        int[] neighboringClusters, nodeOrder;
+        int bestCluster, chosenCluster, i, j, k, l, max_idx, mid_idx, min_idx, nClusters, nNeighboringClusters;
 
-        Clustering clustering = new Clustering(network.nNodes);
+        for (i = 0; i < nNodes; i++)
+            clusters[offset + i] = i;
 
-        if (network.nNodes == 1)
-            return clustering;
+        if (nNodes == 1)
+            return 1;
 
         update = false;
 
-        totalNodeWeight = network.getTotalNodeWeight();
-        clusterWeights = network.getNodeWeights();
-        nonSingletonClusters = new boolean[network.nNodes];
-        externalEdgeWeightPerCluster = network.getTotalEdgeWeightPerNode();
-
-        nodeOrder = Arrays.generateRandomPermutation(network.nNodes, random);
+        ensureCapacity(nNodes);
+        totalNodeWeight = Arrays.calcSum(nodeWeights, offset, offset + nNodes);
+        for (i = 0; i < nNodes; i++)
+        {
+            clusterWeights[i] = nodeWeights[offset + i];
+            nonSingletonClusters[i] = false;
+            externalEdgeWeightPerCluster[i] = Arrays.calcSum(edgeWeights, firstNeighborIndices[offset + i], firstNeighborIndices[offset + i + 1]);
+            nodeOrder[i] = i;
+        }
+        Arrays.permuteRandomly(nodeOrder, nNodes, random);
 
-        edgeWeightPerCluster = new double[network.nNodes];
-        neighboringClusters = new int[network.nNodes];
-        cumTransformedQualityValueIncrementPerCluster = new double[network.nNodes];
-        for (i = 0; i < network.nNodes; i++)
+        for (i = 0; i < nNodes; i++)
         {
             j = nodeOrder[i];
 
@@ -140,15 +210,15 @@ public class LocalMergingAlgorithm extends CPMClusteringAlgorithm
                  */
                 neighboringClusters[0] = j;
                 nNeighboringClusters = 1;
-                for (k = network.firstNeighborIndices[j]; k < network.firstNeighborIndices[j + 1]; k++)
+                for (k = firstNeighborIndices[offset + j]; k < firstNeighborIndices[offset + j + 1]; k++)
                 {
-                    l = clustering.clusters[network.neighbors[k]];
+                    l = clusters[offset + neighbors[k]];
                     if (edgeWeightPerCluster[l] == 0)
                     {
                         neighboringClusters[nNeighboringClusters] = l;
                         nNeighboringClusters++;
                     }
-                    edgeWeightPerCluster[l] += network.edgeWeights[k];
+                    edgeWeightPerCluster[l] += edgeWeights[k];
                 }
 
                 /*
@@ -172,7 +242,7 @@ public class LocalMergingAlgorithm extends CPMClusteringAlgorithm
 
                     if (externalEdgeWeightPerCluster[l] >= clusterWeights[l] * (totalNodeWeight - clusterWeights[l]) * resolution)
                     {
-                        qualityValueIncrement = edgeWeightPerCluster[l] - network.nodeWeights[j] * clusterWeights[l] * resolution;
+                        qualityValueIncrement = edgeWeightPerCluster[l] - nodeWeights[offset + j] * clusterWeights[l] * resolution;
 
                         if (qualityValueIncrement > maxQualityValueIncrement)
                         {
@@ -215,17 +285,17 @@ public class LocalMergingAlgorithm extends CPMClusteringAlgorithm
                  * Move the currently selected node to its new cluster and
                  * update the clustering statistics.
                  */
-                clusterWeights[chosenCluster] += network.nodeWeights[j];
+                clusterWeights[chosenCluster] += nodeWeights[offset + j];
 
-                for (k = network.firstNeighborIndices[j]; k < network.firstNeighborIndices[j + 1]; k++)
-                    if (clustering.clusters[network.neighbors[k]] == chosenCluster)
-                        externalEdgeWeightPerCluster[chosenCluster] -= network.edgeWeights[k];
+                for (k = firstNeighborIndices[offset + j]; k < firstNeighborIndices[offset + j + 1]; k++)
+                    if (clusters[offset + neighbors[k]] == chosenCluster)
+                        externalEdgeWeightPerCluster[chosenCluster] -= edgeWeights[k];
                     else
-                        externalEdgeWeightPerCluster[chosenCluster] += network.edgeWeights[k];
+                        externalEdgeWeightPerCluster[chosenCluster] += edgeWeights[k];
 
                 if (chosenCluster != j)
                 {
-                    clustering.clusters[j] = chosenCluster;
+                    clusters[offset + j] = chosenCluster;
 
                     nonSingletonClusters[chosenCluster] = true;
                     update = true;
@@ -233,9 +303,43 @@ public class LocalMergingAlgorithm extends CPMClusteringAlgorithm
             }
         }
 
-        if (update)
-            clustering.removeEmptyClusters();
+        if (!update)
+            return nNodes;
 
-        return clustering;
+        // Relabel the clusters in the same way as Clustering.removeEmptyClusters().
+        java.util.Arrays.fill(nonSingletonClusters, 0, nNodes, false);
+        for (i = 0; i < nNodes; i++)
+            nonSingletonClusters[clusters[offset + i]] = true;
+        nClusters = 0;
+        for (i = 0; i < nNodes; i++)
+            if (nonSingletonClusters[i])
+            {
+                neighboringClusters[i] = nClusters;
+                nClusters++;
+            }
+        for (i = 0; i < nNodes; i++)
+            clusters[offset + i] = neighboringClusters[clusters[offset + i]];
+
+        return nClusters;
+    }
+
+    /**
+     * Ensures that the working memory of the algorithm fits subnetworks of up
+     * to a specified number of nodes.
+     *
+     * @param nNodes Number of nodes
+     */
+    void ensureCapacity(int nNodes)
+    {
+        if ((nodeOrder != null) && (nodeOrder.length >= nNodes))
+            return;
+
+        nonSingletonClusters = new boolean[nNodes];
+        clusterWeights = new double[nNodes];
+        cumTransformedQualityValueIncrementPerCluster = new double[nNodes];
+        edgeWeightPerCluster = new double[nNodes];
+        externalEdgeWeightPerCluster = new double[nNodes];
+        neighboringClusters = new int[nNodes];
+        nodeOrder = new int[nNodes];
     }
 }
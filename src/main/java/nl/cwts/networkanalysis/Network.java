@@ -315,6 +315,48 @@ public class Network implements Serializable
         this(nNodes, null, setNodeWeightsToTotalEdgeWeights, firstNeighborIndices, neighbors, edgeWeights, checkIntegrity);
     }
 
+    /**
+     * Creates a network based on a list of neighbors without copying the
+     * provided arrays.
+     *
+     * <p>
+     * The arrays have the same meaning as in {@link #Network(double[], int[],
+     * int[], double[], boolean)}, but they are used by the network directly.
+     * They therefore must not be modified afterwards. Self links are not
+     * included in the list of neighbors, their total weight is provided in
+     * {@code totalEdgeWeightSelfLinks}.
+     * </p>
+     *
+     * @param nodeWeights              Node weights
+     * @param firstNeighborIndices     Index of the first neighbor of each node
+     * @param neighbors                Neighbor list
+     * @param edgeWeights              Edge weights
+     * @param totalEdgeWeightSelfLinks Total edge weight of self links
+     * @param checkIntegrity           Indicates whether to check the integrity
+     *                                 of the network
+     *
+     * @return Network
+     */
+    public static Network createSharingArrays(double[] nodeWeights, int[] firstNeighborIndices, int[] neighbors, double[] edgeWeights, double totalEdgeWeightSelfLinks, boolean checkIntegrity)
+    {
+        Network network;
+
+        network = new Network();
+
+        network.nNodes = nodeWeights.length;
+        network.nEdges = neighbors.length;
+        network.nodeWeights = nodeWeights;
+        network.firstNeighborIndices = firstNeighborIndices;
+        network.neighbors = neighbors;
+        network.edgeWeights = edgeWeights;
+        network.totalEdgeWeightSelfLinks = totalEdgeWeightSelfLinks;
+
+        if (checkIntegrity)
+            network.checkIntegrity();
+
+        return network;
+    }
+
     /**
      * Returns the number of nodes.
      *
@@ -325,6 +367,121 @@ public class Network implements Serializable
         return nNodes;
     }
 
+    /**
+     * Returns the number of edges.
+     *
+     * <p>
+     * Each edge is counted only once, even though an edge is stored twice,
+     * once in each direction. Self links are not taken into account.
+     * </p>
+     *
+     * @return Number of edges
+     */
+    public int getNEdges()
+    {
+        return nEdges / 2;
+    }
+
+    /**
+     * Returns the index of the first neighbor of each node in the arrays
+     * returned by {@link #getNeighbors()} and {@link
+     * #getNeighborEdgeWeights()}.
+     *
+     * <p>
+     * The array is shared with the network, so it must not be modified.
+     * </p>
+     *
+     * @return Index of the first neighbor of each node
+     */
+    public int[] getFirstNeighborIndices()
+    {
+        return firstNeighborIndices;
+    }
+
+    /**
+     * Returns the neighbors of all nodes. The neighbors of node {@code i} are
+     * at the positions from {@code firstNeighborIndices[i]} to {@code
+     * firstNeighborIndices[i + 1] - 1}.
+     *
+     * <p>
+     * The array is shared with the network, so it must not be modified.
+     * </p>
+     *
+     * @return Neighbor list
+     */
+    public int[] getNeighbors()
+    {
+        return neighbors;
+    }
+
+    /**
+     * Returns the weights of the edges between all nodes and their neighbors,
+     * in the order of {@link #getNeighbors()}.
+     *
+     * <p>
+     * The array is shared with the network, so it must not be modified.
+     * </p>
+     *
+     * @return Edge weights
+     */
+    public double[] getNeighborEdgeWeights()
+    {
+        return edgeWeights;
+    }
+
+    /**
+     * Returns the list of edges.
+     *
+     * <p>
+     * Edge {@code i} connects nodes {@code edges[0][i]} and {@code
+     * edges[1][i]}, where {@code edges[0][i] < edges[1][i]}. Each edge is
+     * included only once, self links are not included. The edges are sorted
+     * by their first and then by their second node if the neighbors of each
+     * node are sorted.
+     * </p>
+     *
+     * @return Edge list
+     */
+    public int[][] getEdges()
+    {
+        int i, j, k;
+        int[][] edges;
+
+        edges = new int[2][nEdges / 2];
+        k = 0;
+        for (i = 0; i < nNodes; i++)
+            for (j = firstNeighborIndices[i]; j < firstNeighborIndices[i + 1]; j++)
+                if (neighbors[j] > i)
+                {
+                    edges[0][k] = i;
+                    edges[1][k] = neighbors[j];
+                    k++;
+                }
+        return edges;
+    }
+
+    /**
+     * Returns the weight of each edge, in the order of {@link #getEdges()}.
+     *
+     * @return Weight of each edge
+     */
+    public double[] getEdgeWeights()
+    {
+        int i, j, k;
+        double[] edgeWeights;
+
+        edgeWeights = new double[nEdges / 2];
+        k = 0;
+        for (i = 0; i < nNodes; i++)
+            for (j = firstNeighborIndices[i]; j < firstNeighborIndices[i + 1]; j++)
+                if (neighbors[j] > i)
+                {
+                    edgeWeights[k] = this.edgeWeights[j];
+                    k++;
+                }
+        return edgeWeights;
+    }
+
     /**
      * Returns the total node weight.
      *
@@ -345,6 +502,31 @@ public class Network implements Serializable
         return nodeWeights.clone();
     }
 
+    /**
+     * Returns the total edge weight.
+     *
+     * <p>
+     * Each edge is considered only once, even though an edge is stored twice,
+     * once in each direction. Self links are not taken into account.
+     * </p>
+     *
+     * @return Total edge weight
+     */
+    public double getTotalEdgeWeight()
+    {
+        return nl.cwts.util.Arrays.calcSum(edgeWeights) / 2;
+    }
+
+    /**
+     * Returns the total edge weight of self links.
+     *
+     * @return Total edge weight of self links
+     */
+    public double getTotalEdgeWeightSelfLinks()
+    {
+        return totalEdgeWeightSelfLinks;
+    }
+
     /**
      * Returns the total edge weight per node. The total edge weight of a node
      * equals the sum of the weights of the edges between the node and its
@@ -0,0 +1,484 @@
+package nl.cwts.networkanalysis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import nl.cwts.util.Arrays;
+
+/**
+ * Parallel local moving algorithm.
+ *
+ * <p>
+ * The parallel local moving algorithm is a parallel variant of the {@link
+ * FastLocalMovingAlgorithm}. It maintains the same queue of unstable nodes,
+ * but removes the nodes from the queue in batches. For all nodes in a batch,
+ * the cluster that results in the largest increase in the quality function is
+ * determined concurrently, based on the clustering at the start of the batch.
+ * The nodes are then moved to these clusters one by one, in the order of the
+ * queue. A move is made only if neither the old cluster nor the new cluster of
+ * the node has already been changed by an earlier move in the same batch.
+ * Otherwise the node is added to the queue again. In this way, each move
+ * results in an exact increase in the quality function, which guarantees
+ * convergence of the algorithm.
+ * </p>
+ *
+ * <p>
+ * Concurrent threads only read the clustering and the clustering statistics,
+ * all updates are made by the calling thread. The algorithm is therefore
+ * deterministic: for a given random number generator seed and batch size, the
+ * resulting clustering does not depend on the number of threads.
+ * </p>
+ *
+ * @author Alina Shlegel
+ * @author Timofey Pushkin
+ */
+public class ParallelLocalMovingAlgorithm extends IterativeCPMClusteringAlgorithm
+{
+    /**
+     * Default number of nodes in a batch.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+
+    /**
+     * Indicates that moving a node to an empty cluster is optimal.
+     */
+    private static final int EMPTY_CLUSTER = -1;
+
+    /**
+     * Number of threads.
+     */
+    protected int nThreads;
+
+    /**
+     * Number of nodes in a batch.
+     */
+    protected int batchSize;
+
+    /**
+     * Random number generator.
+     */
+    protected Random random;
+
+    /**
+     * Thread pool given to the algorithm, shared between clones of the
+     * algorithm, or null if a pool is created for each run.
+     */
+    protected ForkJoinPool sharedPool;
+
+    /**
+     * Thread pool used by the current run, or null if the run uses a single
+     * thread.
+     */
+    protected ForkJoinPool pool;
+
+    /**
+     * Constructs a parallel local moving algorithm using all available
+     * processors.
+     *
+     * @param random Random number generator
+     */
+    public ParallelLocalMovingAlgorithm(Random random)
+    {
+        this(DEFAULT_RESOLUTION, DEFAULT_N_ITERATIONS, Runtime.getRuntime().availableProcessors(), random);
+    }
+
+    /**
+     * Constructs a parallel local moving algorithm for a specified resolution
+     * parameter, number of iterations, and number of threads.
+     *
+     * @param resolution  Resolution parameter
+     * @param nIterations Number of iterations
+     * @param nThreads    Number of threads
+     * @param random      Random number generator
+     */
+    public ParallelLocalMovingAlgorithm(double resolution, int nIterations, int nThreads, Random random)
+    {
+        this(resolution, nIterations, nThreads, DEFAULT_BATCH_SIZE, random);
+    }
+
+    /**
+     * Constructs a parallel local moving algorithm for a specified resolution
+     * parameter, number of iterations, number of threads, and batch size.
+     *
+     * @param resolution  Resolution parameter
+     * @param nIterations Number of iterations
+     * @param nThreads    Number of threads
+     * @param batchSize   Number of nodes in a batch
+     * @param random      Random number generator
+     */
+    public ParallelLocalMovingAlgorithm(double resolution, int nIterations, int nThreads, int batchSize, Random random)
+    {
+        super(resolution, nIterations);
+        if (nThreads < 1)
+            throw new IllegalArgumentException("nThreads must be positive.");
+        if (batchSize < 1)
+            throw new IllegalArgumentException("batchSize must be positive.");
+        this.nThreads = nThreads;
+        this.batchSize = batchSize;
+        this.random = random;
+    }
+
+    /**
+     * Constructs a parallel local moving algorithm for a specified resolution
+     * parameter, number of iterations, thread pool, and batch size.
+     *
+     * <p>
+     * The pool is owned by the caller, which shuts it down when it is no
+     * longer needed. The algorithm uses as many threads as the parallelism of
+     * the pool.
+     * </p>
+     *
+     * @param resolution  Resolution parameter
+     * @param nIterations Number of iterations
+     * @param pool        Thread pool
+     * @param batchSize   Number of nodes in a batch
+     * @param random      Random number generator
+     */
+    public ParallelLocalMovingAlgorithm(double resolution, int nIterations, ForkJoinPool pool, int batchSize, Random random)
+    {
+        this(resolution, nIterations, pool.getParallelism(), batchSize, random);
+        sharedPool = pool;
+        this.pool = pool;
+    }
+
+    /**
+     * Returns the number of threads.
+     *
+     * @return Number of threads
+     */
+    public int getNThreads()
+    {
+        return nThreads;
+    }
+
+    /**
+     * Returns the number of nodes in a batch.
+     *
+     * @return Number of nodes in a batch
+     */
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    /**
+     * Improves a clustering by performing multiple iterations of the parallel
+     * local moving algorithm.
+     *
+     * <p>
+     * Unless a pool has been given to the algorithm, a pool of the specified
+     * number of threads is created for the run and shut down at its end.
+     * </p>
+     *
+     * @param network    Network
+     * @param clustering Clustering
+     *
+     * @return Boolean indicating whether the clustering has been improved
+     */
+    @Override
+    public boolean improveClustering(Network network, Clustering clustering)
+    {
+        if ((sharedPool != null) || (nThreads == 1))
+            return super.improveClustering(network, clustering);
+
+        pool = new ForkJoinPool(nThreads);
+        try
+        {
+            return super.improveClustering(network, clustering);
+        }
+        finally
+        {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    /**
+     * Improves a clustering by performing one iteration of the parallel local
+     * moving algorithm.
+     *
+     * <p>
+     * The parallel local moving algorithm first adds all nodes in a network
+     * to a queue. It then removes a batch of nodes from the queue and
+     * concurrently determines the optimal cluster of each of these nodes.
+     * Nodes are moved to their optimal clusters as long as the moves do not
+     * conflict with each other. If a node is moved to a different cluster,
+     * the neighbors of the node that do not belong to the node's new cluster
+     * and that are not yet in the queue are added to the queue. Nodes whose
+     * moves conflict are added to the queue as well. The algorithm continues
+     * removing batches of nodes from the queue until the queue is empty.
+     * </p>
+     *
+     * @param network    Network
+     * @param clustering Clustering
+     *
+     * @return Boolean indicating whether the clustering has been improved
+     */
+    protected boolean improveClusteringOneIteration(Network network, Clustering clustering)
+    {
+        boolean update;
+        boolean[] changedClusters, stableNodes;
+        double[] clusterWeights;
+        int bestCluster, currentCluster, i, j, k, nBatchNodes, nChangedClusters, nUnstableNodes, nUnusedClusters;
+        int[] batchNodes, bestClusters, changedClusterList, nNodesPerCluster, nodeOrder, unusedClusters;
+        ProposalWorker[] workers;
+
+        if (network.nNodes == 1)
+            return false;
+
+        update = false;
+
+        clusterWeights = new double[network.nNodes];
+        nNodesPerCluster = new int[network.nNodes];
+        for (i = 0; i < network.nNodes; i++)
+        {
+            clusterWeights[clustering.clusters[i]] += network.nodeWeights[i];
+            nNodesPerCluster[clustering.clusters[i]]++;
+        }
+
+        nUnusedClusters = 0;
+        unusedClusters = new int[network.nNodes - 1];
+        for (i = network.nNodes - 1; i >= 0; i--)
+            if (nNodesPerCluster[i] == 0)
+            {
+                unusedClusters[nUnusedClusters] = i;
+                nUnusedClusters++;
+            }
+
+        nodeOrder = Arrays.generateRandomPermutation(network.nNodes, random);
+
+        workers = new ProposalWorker[(pool != null) ? nThreads : 1];
+        for (i = 0; i < workers.length; i++)
+            workers[i] = new ProposalWorker(network, clustering, clusterWeights);
+
+        batchNodes = new int[Math.min(batchSize, network.nNodes)];
+        bestClusters = new int[batchNodes.length];
+        changedClusters = new boolean[network.nNodes];
+        changedClusterList = new int[2 * batchNodes.length];
+        stableNodes = new boolean[network.nNodes];
+
+        /*
+         * Iterate over the nodeOrder array in a cyclical manner, exactly like
+         * the fast local moving algorithm does. The queue of nodes that still
+         * need to be visited is given by nodeOrder[i], ..., nodeOrder[i +
+         * nUnstableNodes - 1]. Continue iterating until the queue is empty.
+         */
+        nUnstableNodes = network.nNodes;
+        i = 0;
+        do
+        {
+            /*
+             * Remove a batch of nodes from the queue and mark the nodes as
+             * stable.
+             */
+            nBatchNodes = Math.min(batchNodes.length, nUnstableNodes);
+            for (k = 0; k < nBatchNodes; k++)
+            {
+                j = nodeOrder[i];
+                batchNodes[k] = j;
+                stableNodes[j] = true;
+                i = (i < network.nNodes - 1) ? (i + 1) : 0;
+            }
+            nUnstableNodes -= nBatchNodes;
+
+            // Determine the optimal cluster of each node in the batch.
+            proposeClusters(workers, batchNodes, nBatchNodes, bestClusters);
+
+            /*
+             * Move the nodes in the batch to their optimal clusters, unless
+             * one of the clusters involved has already been changed in this
+             * batch. In that case the optimal cluster may be outdated, so the
+             * node is added to the queue again.
+             */
+            nChangedClusters = 0;
+            for (k = 0; k < nBatchNodes; k++)
+            {
+                j = batchNodes[k];
+                currentCluster = clustering.clusters[j];
+                bestCluster = bestClusters[k];
+
+                if (bestCluster == currentCluster)
+                    continue;
+
+                if (changedClusters[currentCluster] || ((bestCluster != EMPTY_CLUSTER) && changedClusters[bestCluster]))
+                {
+                    if (stableNodes[j])
+                    {
+                        stableNodes[j] = false;
+                        nodeOrder[(i + nUnstableNodes < network.nNodes) ? (i + nUnstableNodes) : (i + nUnstableNodes - network.nNodes)] = j;
+                        nUnstableNodes++;
+                    }
+                    continue;
+                }
+
+                // Remove the node from its current cluster.
+                clusterWeights[currentCluster] -= network.nodeWeights[j];
+                nNodesPerCluster[currentCluster]--;
+                if (nNodesPerCluster[currentCluster] == 0)
+                {
+                    unusedClusters[nUnusedClusters] = currentCluster;
+                    nUnusedClusters++;
+                }
+
+                // Move the node to its new cluster.
+                if (bestCluster == EMPTY_CLUSTER)
+                {
+                    bestCluster = unusedClusters[nUnusedClusters - 1];
+                    nUnusedClusters--;
+                }
+                clusterWeights[bestCluster] += network.nodeWeights[j];
+                nNodesPerCluster[bestCluster]++;
+
+                changedClusters[currentCluster] = true;
+                changedClusters[bestCluster] = true;
+                changedClusterList[nChangedClusters] = currentCluster;
+                changedClusterList[nChangedClusters + 1] = bestCluster;
+                nChangedClusters += 2;
+
+                /*
+                 * Update the clustering and add the neighbors of the node that
+                 * do not belong to the new cluster to the queue.
+                 */
+                clustering.clusters[j] = bestCluster;
+                if (bestCluster >= clustering.nClusters)
+                    clustering.nClusters = bestCluster + 1;
+                for (int l = network.firstNeighborIndices[j]; l < network.firstNeighborIndices[j + 1]; l++)
+                    if (stableNodes[network.neighbors[l]] && (clustering.clusters[network.neighbors[l]] != bestCluster))
+                    {
+                        stableNodes[network.neighbors[l]] = false;
+                        nodeOrder[(i + nUnstableNodes < network.nNodes) ? (i + nUnstableNodes) : (i + nUnstableNodes - network.nNodes)] = network.neighbors[l];
+                        nUnstableNodes++;
+                    }
+
+                update = true;
+            }
+
+            for (k = 0; k < nChangedClusters; k++)
+                changedClusters[changedClusterList[k]] = false;
+        } while (nUnstableNodes > 0);
+
+        if (update)
+            clustering.removeEmptyClusters();
+
+        return update;
+    }
+
+    private void proposeClusters(ProposalWorker[] workers, int[] batchNodes, int nBatchNodes, int[] bestClusters)
+    {
+        int from, t, to;
+        List<Callable<Void>> tasks;
+        List<Future<Void>> futures;
+
+        if ((workers.length == 1) || (nBatchNodes < 2 * workers.length))
+        {
+            workers[0].propose(batchNodes, 0, nBatchNodes, bestClusters);
+            return;
+        }
+
+        tasks = new ArrayList<>(workers.length);
+        for (t = 0; t < workers.length; t++)
+        {
+            final ProposalWorker worker = workers[t];
+            from = (int)((long)nBatchNodes * t / workers.length);
+            to = (int)((long)nBatchNodes * (t + 1) / workers.length);
+            final int taskFrom = from, taskTo = to;
+            tasks.add(() ->
+            {
+                worker.propose(batchNodes, taskFrom, taskTo, bestClusters);
+                return null;
+            });
+        }
+
+        futures = pool.invokeAll(tasks);
+        for (Future<Void> future : futures)
+            try
+            {
+                future.get();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Parallel local moving has been interrupted.", e);
+            }
+            catch (ExecutionException e)
+            {
+                throw new IllegalStateException("Parallel local moving has failed.", e.getCause());
+            }
+    }
+
+    /**
+     * Determines optimal clusters of nodes using its own working memory.
+     */
+    private class ProposalWorker
+    {
+        private final Network network;
+        private final Clustering clustering;
+        private final double[] clusterWeights;
+        private final double[] edgeWeightPerCluster;
+        private final int[] neighboringClusters;
+
+        ProposalWorker(Network network, Clustering clustering, double[] clusterWeights)
+        {
+            this.network = network;
+            this.clustering = clustering;
+            this.clusterWeights = clusterWeights;
+            edgeWeightPerCluster = new double[network.nNodes];
+            neighboringClusters = new int[network.nNodes];
+        }
+
+        /*
+         * For each node, the increment of the quality function is calculated
+         * for moving the node to each of its neighboring clusters and to an
+         * empty cluster. As in the fast local moving algorithm, the node stays
+         * in its current cluster if that cluster is among the optimal ones.
+         */
+        void propose(int[] batchNodes, int from, int to, int[] bestClusters)
+        {
+            double maxQualityValueIncrement, qualityValueIncrement;
+            int bestCluster, currentCluster, j, k, l, m, nNeighboringClusters;
+
+            for (m = from; m < to; m++)
+            {
+                j = batchNodes[m];
+                currentCluster = clustering.clusters[j];
+
+                nNeighboringClusters = 0;
+                for (k = network.firstNeighborIndices[j]; k < network.firstNeighborIndices[j + 1]; k++)
+                {
+                    l = clustering.clusters[network.neighbors[k]];
+                    if (edgeWeightPerCluster[l] == 0)
+                    {
+                        neighboringClusters[nNeighboringClusters] = l;
+                        nNeighboringClusters++;
+                    }
+                    edgeWeightPerCluster[l] += network.edgeWeights[k];
+                }
+
+                bestCluster = currentCluster;
+                maxQualityValueIncrement = edgeWeightPerCluster[currentCluster] - network.nodeWeights[j] * (clusterWeights[currentCluster] - network.nodeWeights[j]) * resolution;
+                for (k = 0; k < nNeighboringClusters; k++)
+                {
+                    l = neighboringClusters[k];
+                    if (l != currentCluster)
+                    {
+                        qualityValueIncrement = edgeWeightPerCluster[l] - network.nodeWeights[j] * clusterWeights[l] * resolution;
+                        if (qualityValueIncrement > maxQualityValueIncrement)
+                        {
+                            bestCluster = l;
+                            maxQualityValueIncrement = qualityValueIncrement;
+                        }
+                    }
+                    edgeWeightPerCluster[l] = 0;
+                }
+                if (0 > maxQualityValueIncrement)
+                    bestCluster = EMPTY_CLUSTER;
+
+                bestClusters[m] = bestCluster;
+            }
+        }
+    }
+}
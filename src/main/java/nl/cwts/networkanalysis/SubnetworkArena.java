@@ -0,0 +1,208 @@
+package nl.cwts.networkanalysis;
+
+/**
+ * Induced subnetworks for the clusters in a clustering, stored in shared
+ * arrays.
+ *
+ * <p>
+ * The subnetworks are stored one after another in a single sparse compressed
+ * adjacency. Subnetwork {@code s} consists of the nodes at positions {@code
+ * firstNodeIndices[s], ..., firstNodeIndices[s + 1] - 1}. Within a
+ * subnetwork, nodes are ordered in the same way as in the network and
+ * neighbors are given by their index in the subnetwork. This is the same
+ * layout as the one of the subnetworks created by {@link
+ * Network#createSubnetworks(Clustering)}, but without a separate {@link
+ * Network} object and separate arrays for each subnetwork.
+ * </p>
+ *
+ * <p>
+ * An arena can be refilled for another network and clustering. Its arrays are
+ * only reallocated if they are too small, so the same arena can be used for
+ * all iterations of the {@link LeidenAlgorithm}.
+ * </p>
+ *
+ * @author Alina Shlegel
+ * @author Timofey Pushkin
+ */
+public class SubnetworkArena
+{
+    /**
+     * Number of subnetworks.
+     */
+    protected int nSubnetworks;
+
+    /**
+     * Index of the first node of each subnetwork.
+     */
+    protected int[] firstNodeIndices;
+
+    /**
+     * Node of the network at each position.
+     */
+    protected int[] nodes;
+
+    /**
+     * Node weights.
+     */
+    protected double[] nodeWeights;
+
+    /**
+     * Index of the first neighbor of the node at each position in the {@code
+     * neighbors} array.
+     */
+    protected int[] firstNeighborIndices;
+
+    /**
+     * Neighbors of each node, given by their index in the subnetwork.
+     */
+    protected int[] neighbors;
+
+    /**
+     * Edge weights.
+     */
+    protected double[] edgeWeights;
+
+    /**
+     * Cluster of the node at each position, given by its index in the
+     * clustering of the subnetwork.
+     */
+    protected int[] clusters;
+
+    /**
+     * Number of clusters in the clustering of each subnetwork.
+     */
+    protected int[] nClustersPerSubnetwork;
+
+    /**
+     * Number of nodes in the largest subnetwork, used to allocate the working
+     * memory of the refinement once before it starts.
+     */
+    protected int maxSubnetworkSize;
+
+    /**
+     * Constructs an empty arena.
+     */
+    public SubnetworkArena()
+    {
+        firstNodeIndices = new int[1];
+        nodes = new int[0];
+        nodeWeights = new double[0];
+        firstNeighborIndices = new int[1];
+        neighbors = new int[0];
+        edgeWeights = new double[0];
+        clusters = new int[0];
+        nClustersPerSubnetwork = new int[0];
+    }
+
+    /**
+     * Returns the number of subnetworks.
+     *
+     * @return Number of subnetworks
+     */
+    public int getNSubnetworks()
+    {
+        return nSubnetworks;
+    }
+
+    /**
+     * Returns the number of nodes in a subnetwork.
+     *
+     * @param subnetwork Subnetwork
+     *
+     * @return Number of nodes
+     */
+    public int getNNodes(int subnetwork)
+    {
+        return firstNodeIndices[subnetwork + 1] - firstNodeIndices[subnetwork];
+    }
+
+    /**
+     * Returns the cluster of each node in a subnetwork, which is only valid
+     * after a clustering of the subnetwork has been found by {@link
+     * LocalMergingAlgorithm#findClustering(SubnetworkArena, int)}.
+     *
+     * @param subnetwork Subnetwork
+     *
+     * @return Cluster of each node
+     */
+    public int[] getClusters(int subnetwork)
+    {
+        return java.util.Arrays.copyOfRange(clusters, firstNodeIndices[subnetwork], firstNodeIndices[subnetwork + 1]);
+    }
+
+    /**
+     * Fills the arena with the induced subnetworks for the clusters in a
+     * clustering.
+     *
+     * @param network    Network
+     * @param clustering Clustering
+     */
+    public void fill(Network network, Clustering clustering)
+    {
+        int i, j, k, nEdges;
+        int[] localNodes;
+
+        nSubnetworks = clustering.nClusters;
+        if (firstNodeIndices.length < nSubnetworks + 1)
+        {
+            firstNodeIndices = new int[nSubnetworks + 1];
+            nClustersPerSubnetwork = new int[nSubnetworks];
+        }
+        if (nodes.length < network.nNodes)
+        {
+            nodes = new int[network.nNodes];
+            nodeWeights = new double[network.nNodes];
+            firstNeighborIndices = new int[network.nNodes + 1];
+            clusters = new int[network.nNodes];
+        }
+        if (neighbors.length < network.nEdges)
+        {
+            neighbors = new int[network.nEdges];
+            edgeWeights = new double[network.nEdges];
+        }
+
+        // Order the nodes by cluster using a counting sort.
+        java.util.Arrays.fill(firstNodeIndices, 0, nSubnetworks + 1, 0);
+        for (i = 0; i < network.nNodes; i++)
+            firstNodeIndices[clustering.clusters[i] + 1]++;
+        maxSubnetworkSize = 0;
+        for (i = 0; i < nSubnetworks; i++)
+        {
+            maxSubnetworkSize = Math.max(maxSubnetworkSize, firstNodeIndices[i + 1]);
+            firstNodeIndices[i + 1] += firstNodeIndices[i];
+        }
+
+        /*
+         * Use the clusters array to hold the next free position of each
+         * subnetwork and then the index of each node in its subnetwork, both
+         * are overwritten by the refinement later.
+         */
+        localNodes = clusters;
+        System.arraycopy(firstNodeIndices, 0, localNodes, 0, nSubnetworks);
+        for (i = 0; i < network.nNodes; i++)
+        {
+            j = clustering.clusters[i];
+            nodes[localNodes[j]] = i;
+            localNodes[j]++;
+        }
+        for (i = 0; i < network.nNodes; i++)
+            localNodes[nodes[i]] = i - firstNodeIndices[clustering.clusters[nodes[i]]];
+
+        // Copy the edges within the clusters.
+        nEdges = 0;
+        firstNeighborIndices[0] = 0;
+        for (i = 0; i < network.nNodes; i++)
+        {
+            j = nodes[i];
+            nodeWeights[i] = network.nodeWeights[j];
+            for (k = network.firstNeighborIndices[j]; k < network.firstNeighborIndices[j + 1]; k++)
+                if (clustering.clusters[network.neighbors[k]] == clustering.clusters[j])
+                {
+                    neighbors[nEdges] = localNodes[network.neighbors[k]];
+                    edgeWeights[nEdges] = network.edgeWeights[k];
+                    nEdges++;
+                }
+            firstNeighborIndices[i + 1] = nEdges;
+        }
+    }
+}
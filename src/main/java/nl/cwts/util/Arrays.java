@@ -123,12 +123,29 @@ public final class Arrays
      * @param random   Random number generator
      */
     public static void permuteRandomly(int[] elements, Random random)
+    {
+        permuteRandomly(elements, elements.length, random);
+    }
+
+    /**
+     * Randomly permutes the first elements.
+     *
+     * <p>
+     * Randomly permutes {@code elements[0], ..., elements[nElements - 1]}. The
+     * remaining elements are not changed.
+     * </p>
+     *
+     * @param elements  Elements
+     * @param nElements Number of elements to permute
+     * @param random    Random number generator
+     */
+    public static void permuteRandomly(int[] elements, int nElements, Random random)
     {
         int i, j, k;
 
-        for (i = 0; i < elements.length; i++)
+        for (i = 0; i < nElements; i++)
         {
-            j = random.nextInt(elements.length);
+            j = random.nextInt(nElements);
             k = elements[i];
             elements[i] = elements[j];
             elements[j] = k;
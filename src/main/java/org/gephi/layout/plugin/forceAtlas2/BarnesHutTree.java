@@ -0,0 +1,415 @@
+/*
+ Copyright 2008-2011 Gephi
+ Authors : Mathieu Jacomy <mathieu.jacomy@gmail.com>
+ Website : http://www.gephi.org
+
+ This file is part of Gephi.
+
+ DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+ Copyright 2011 Gephi Consortium. All rights reserved.
+
+ The contents of this file are subject to the terms of either the GNU
+ General Public License Version 3 only ("GPL") or the Common
+ Development and Distribution License("CDDL") (collectively, the
+ "License"). You may not use this file except in compliance with the
+ License. You can obtain a copy of the License at
+ http://gephi.org/about/legal/license-notice/
+ or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+ specific language governing permissions and limitations under the
+ License.  When distributing the software, include this License Header
+ Notice in each file and include the License files at
+ /cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+ License Header, with the fields enclosed by brackets [] replaced by
+ your own identifying information:
+ "Portions Copyrighted [year] [name of copyright owner]"
+
+ If you wish your version of this file to be governed by only the CDDL
+ or only the GPL Version 3, indicate your decision by adding
+ "[Contributor] elects to include this software in this distribution
+ under the [CDDL or GPL Version 3] license." If you do not indicate a
+ single choice of license, a recipient has the option to distribute
+ your version of this file under either the CDDL, the GPL Version 3 or
+ to extend the choice of license to its licensees as provided above.
+ However, if you add GPL Version 3 code and therefore, elected the GPL
+ Version 3 license, then the option applies only if the new code is
+ made subject to such option by the copyright holder.
+
+ Contributor(s):
+ Alina Shlegel
+ Timofey Pushkin
+
+ Portions Copyrighted 2011 Gephi Consortium.
+
+
+ This file is based on Region.java: it builds the same regions, but stores
+ them in preallocated primitive arrays instead of Region objects.
+ */
+package org.gephi.layout.plugin.forceAtlas2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Barnes Hut optimization for {@link CompactForceAtlas2}, stored in flat
+ * arrays.
+ *
+ * <p>
+ * The tree consists of the same regions as the one of {@link Region}: a
+ * region is split into quadrants by its mass center, and if all of its nodes
+ * fall into the same quadrant, it is split into single nodes. The nodes of
+ * each region form a contiguous range of the {@code order} array, in which
+ * the nodes keep their relative order, so the masses are summed up in the
+ * same order as in {@link Region}.
+ * </p>
+ *
+ * <p>
+ * A region of {@code m} nodes reserves {@code 2 * m - 1} cells: the region
+ * itself followed by the reserved cells of its subregions. So the subregions
+ * of a region start right after it and each region knows its cells before it
+ * is built, while all the regions fit into {@code 2 * n - 1} cells. Every
+ * region keeps the cell to visit after it, which is the cell of its next
+ * sibling or the next cell of its parent. The tree is traversed in the same
+ * order as {@link Region#applyForce} without recursion and without a stack.
+ * </p>
+ *
+ * <p>
+ * The arrays are allocated once for the number of nodes, so rebuilding the
+ * tree on every iteration does not allocate anything but the fork-join tasks
+ * for the largest regions.
+ * </p>
+ *
+ * <p>
+ * For the float repulsion, the coordinates and the masses of the nodes are
+ * also copied in the {@code order} of the tree, so the nodes of any region
+ * can be summed up directly by a loop over contiguous arrays.
+ * </p>
+ *
+ * @author Mathieu Jacomy
+ * @author Alina Shlegel
+ * @author Timofey Pushkin
+ */
+class BarnesHutTree {
+
+    static final int NONE = -1;
+
+    // The minimum number of nodes in a region which is built by a separate fork-join task
+    static final int PARALLEL_BUILD_THRESHOLD = 1 << 13;
+
+    // The maximum number of nodes in a region which is summed up directly instead of being split by the float repulsion
+    static final int FLOAT_DIRECT_SUM_THRESHOLD = 32;
+
+    private final CompactForceAtlas2 layout;
+
+    // Nodes in the order of the regions and a buffer for their partitioning
+    private final int[] order;
+    private final int[] buffer;
+
+    // Regions to build, each of them is given by its cell
+    private final int[] pendingCells;
+
+    // Cell data
+    private final int[] firstNodes;
+    private final int[] nodesNums;
+    private final int[] nextCells;
+    private final double[] masses;
+    private final double[] massCentersX;
+    private final double[] massCentersY;
+    private final double[] sizes;
+
+    // Float node data in the order of the regions
+    private float[] orderedX;
+    private float[] orderedY;
+    private float[] orderedMasses;
+
+    BarnesHutTree(CompactForceAtlas2 layout, int nodesNum) {
+        this.layout = layout;
+
+        order = new int[nodesNum];
+        buffer = new int[nodesNum];
+
+        int cellsNum = Math.max(1, 2 * nodesNum - 1);
+        pendingCells = new int[cellsNum];
+        firstNodes = new int[cellsNum];
+        nodesNums = new int[cellsNum];
+        nextCells = new int[cellsNum];
+        masses = new double[cellsNum];
+        massCentersX = new double[cellsNum];
+        massCentersY = new double[cellsNum];
+        sizes = new double[cellsNum];
+    }
+
+    /**
+     * Builds the tree. If a pool is given, the regions of at least {@code
+     * PARALLEL_BUILD_THRESHOLD} nodes are built by separate fork-join tasks
+     * on it, the tree is the same in both cases.
+     */
+    void build(ForkJoinPool pool) {
+        for (int n = 0; n < order.length; n++) {
+            order[n] = n;
+        }
+
+        firstNodes[0] = 0;
+        nodesNums[0] = order.length;
+        nextCells[0] = NONE;
+
+        if (pool != null && order.length >= PARALLEL_BUILD_THRESHOLD) {
+            pool.invoke(new BuildTask(0));
+        } else {
+            buildSubtree(0);
+        }
+    }
+
+    // Builds the regions of the subtree, the reserved cells of the subtree are used as the stack of its pending regions
+    private void buildSubtree(int rootCell) {
+        int pendingCellsNum = rootCell;
+        pendingCells[pendingCellsNum++] = rootCell;
+        while (pendingCellsNum > rootCell) {
+            int cell = pendingCells[--pendingCellsNum];
+            updateMassAndGeometry(cell);
+            if (buildSubRegions(cell)) {
+                for (int subregion = cell + 1; subregion != nextCells[cell]; subregion = nextCells[subregion]) {
+                    if (nodesNums[subregion] > 1) {
+                        pendingCells[pendingCellsNum++] = subregion;
+                    }
+                }
+            }
+        }
+    }
+
+    // Regions only share the arrays of the tree by disjoint ranges of their cells and nodes, so the subtrees of
+    // different subregions can be built concurrently
+    private class BuildTask extends RecursiveAction {
+
+        private final int cell;
+
+        BuildTask(int cell) {
+            this.cell = cell;
+        }
+
+        @Override
+        protected void compute() {
+            if (nodesNums[cell] < PARALLEL_BUILD_THRESHOLD) {
+                buildSubtree(cell);
+                return;
+            }
+
+            updateMassAndGeometry(cell);
+            buildSubRegions(cell);
+
+            List<BuildTask> subtasks = new ArrayList<>();
+            for (int subregion = cell + 1; subregion != nextCells[cell]; subregion = nextCells[subregion]) {
+                if (nodesNums[subregion] > 1) {
+                    subtasks.add(new BuildTask(subregion));
+                }
+            }
+            invokeAll(subtasks);
+        }
+    }
+
+    private void updateMassAndGeometry(int cell) {
+        int from = firstNodes[cell];
+        int to = from + nodesNums[cell];
+
+        if (to - from > 1) {
+            double[] x = layout.x;
+            double[] y = layout.y;
+            double[] nodeMass = layout.mass;
+
+            // Compute Mass
+            double mass = 0;
+            double massSumX = 0;
+            double massSumY = 0;
+            for (int i = from; i < to; i++) {
+                int n = order[i];
+                mass += nodeMass[n];
+                massSumX += x[n] * nodeMass[n];
+                massSumY += y[n] * nodeMass[n];
+            }
+            double massCenterX = massSumX / mass;
+            double massCenterY = massSumY / mass;
+
+            // Compute size
+            double size = Double.MIN_VALUE;
+            for (int i = from; i < to; i++) {
+                int n = order[i];
+                double distance = Math.sqrt((x[n] - massCenterX) * (x[n] - massCenterX) + (y[n] - massCenterY) * (y[n] - massCenterY));
+                size = Math.max(size, 2 * distance);
+            }
+
+            masses[cell] = mass;
+            massCentersX[cell] = massCenterX;
+            massCentersY[cell] = massCenterY;
+            sizes[cell] = size;
+        }
+    }
+
+    // Creates the subregions of the region and returns whether it has any
+    private boolean buildSubRegions(int cell) {
+        int from = firstNodes[cell];
+        int nodesNum = nodesNums[cell];
+        if (nodesNum < 2) {
+            return false;
+        }
+
+        double[] x = layout.x;
+        double[] y = layout.y;
+        double massCenterX = massCentersX[cell];
+        double massCenterY = massCentersY[cell];
+
+        // Quadrants in the order of the subregions: top left, bottom left, bottom right, top right
+        int topLeftNum = 0;
+        int bottomLeftNum = 0;
+        int bottomRightNum = 0;
+        for (int i = from; i < from + nodesNum; i++) {
+            int n = order[i];
+            if (x[n] < massCenterX) {
+                if (y[n] < massCenterY) {
+                    topLeftNum++;
+                } else {
+                    bottomLeftNum++;
+                }
+            } else if (!(y[n] < massCenterY)) {
+                bottomRightNum++;
+            }
+        }
+
+        // Stable partitioning of the nodes into the quadrants
+        int topLeftEnd = from;
+        int bottomLeftEnd = topLeftEnd + topLeftNum;
+        int bottomRightEnd = bottomLeftEnd + bottomLeftNum;
+        int topRightEnd = bottomRightEnd + bottomRightNum;
+        for (int i = from; i < from + nodesNum; i++) {
+            int n = order[i];
+            if (x[n] < massCenterX) {
+                if (y[n] < massCenterY) {
+                    buffer[topLeftEnd++] = n;
+                } else {
+                    buffer[bottomLeftEnd++] = n;
+                }
+            } else if (y[n] < massCenterY) {
+                buffer[topRightEnd++] = n;
+            } else {
+                buffer[bottomRightEnd++] = n;
+            }
+        }
+        System.arraycopy(buffer, from, order, from, nodesNum);
+
+        int lastSubregion = cell;
+        lastSubregion = addQuadrant(cell, lastSubregion, from, topLeftEnd);
+        lastSubregion = addQuadrant(cell, lastSubregion, topLeftEnd, bottomLeftEnd);
+        lastSubregion = addQuadrant(cell, lastSubregion, bottomLeftEnd, bottomRightEnd);
+        addQuadrant(cell, lastSubregion, bottomRightEnd, topRightEnd);
+        return true;
+    }
+
+    // Adds the subregions for the nodes from, ..., to - 1 of a quadrant, returns the last added subregion
+    private int addQuadrant(int cell, int lastSubregion, int from, int to) {
+        int quadrantNodesNum = to - from;
+        if (quadrantNodesNum > 0) {
+            if (quadrantNodesNum < nodesNums[cell]) {
+                lastSubregion = addSubregion(cell, lastSubregion, from, quadrantNodesNum);
+            } else {
+                for (int i = from; i < to; i++) {
+                    lastSubregion = addSubregion(cell, lastSubregion, i, 1);
+                }
+            }
+        }
+        return lastSubregion;
+    }
+
+    // Reserves the cells for a subregion right after the previous one, or right after the region if it is the first
+    private int addSubregion(int cell, int previousSubregion, int firstNode, int nodesNum) {
+        int subregion = (previousSubregion == cell) ? (cell + 1) : (previousSubregion + 2 * nodesNums[previousSubregion] - 1);
+        if (previousSubregion != cell) {
+            nextCells[previousSubregion] = subregion;
+        }
+        firstNodes[subregion] = firstNode;
+        nodesNums[subregion] = nodesNum;
+        nextCells[subregion] = nextCells[cell];
+        return subregion;
+    }
+
+    // Applies the repulsion of the cells of the traversal to node n. The single nodes met by the traversal are pushed
+    // back like in Region#applyForce, unless the repulsion is one-sided.
+    void applyForce(int n, double theta, boolean isOneSided) {
+        double[] x = layout.x;
+        double[] y = layout.y;
+
+        int cell = 0;
+        while (cell != NONE) {
+            if (nodesNums[cell] < 2) {
+                if (isOneSided) {
+                    layout.applyOneSidedRepulsion(n, order[firstNodes[cell]]);
+                } else {
+                    layout.applyRepulsion(n, order[firstNodes[cell]]);
+                }
+                cell = nextCells[cell];
+            } else {
+                double massCenterX = massCentersX[cell];
+                double massCenterY = massCentersY[cell];
+                double distance = Math.sqrt((x[n] - massCenterX) * (x[n] - massCenterX) + (y[n] - massCenterY) * (y[n] - massCenterY));
+                if (distance * theta > sizes[cell]) {
+                    layout.applyRepulsion(n, masses[cell], massCenterX, massCenterY);
+                    cell = nextCells[cell];
+                } else {
+                    // The first subregion
+                    cell++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the float data of the nodes in the order of the regions, must be
+     * called after the tree has been built.
+     */
+    void updateFloatNodes() {
+        if (orderedX == null) {
+            orderedX = new float[order.length];
+            orderedY = new float[order.length];
+            orderedMasses = new float[order.length];
+        }
+        for (int i = 0; i < order.length; i++) {
+            int n = order[i];
+            orderedX[i] = (float) layout.x[n];
+            orderedY[i] = (float) layout.y[n];
+            orderedMasses[i] = (float) layout.mass[n];
+        }
+    }
+
+    /**
+     * The same as the one-sided {@link #applyForce(int, double, boolean)},
+     * but the regions that are too close to be approximated and have at most
+     * {@link #FLOAT_DIRECT_SUM_THRESHOLD} nodes are summed up directly in
+     * float precision. Like there, only the force of the node is updated: the
+     * single nodes it repels are not pushed back.
+     */
+    void applyFloatForce(int n, double theta) {
+        double[] x = layout.x;
+        double[] y = layout.y;
+
+        int cell = 0;
+        while (cell != NONE) {
+            if (nodesNums[cell] > 1) {
+                double massCenterX = massCentersX[cell];
+                double massCenterY = massCentersY[cell];
+                double distance = Math.sqrt((x[n] - massCenterX) * (x[n] - massCenterX) + (y[n] - massCenterY) * (y[n] - massCenterY));
+                if (distance * theta > sizes[cell]) {
+                    layout.applyRepulsion(n, masses[cell], massCenterX, massCenterY);
+                    cell = nextCells[cell];
+                    continue;
+                }
+                if (nodesNums[cell] > FLOAT_DIRECT_SUM_THRESHOLD) {
+                    // The first subregion
+                    cell++;
+                    continue;
+                }
+            }
+            layout.applyFloatRepulsion(n, orderedX, orderedY, orderedMasses, firstNodes[cell], firstNodes[cell] + nodesNums[cell]);
+            cell = nextCells[cell];
+        }
+    }
+}
@@ -0,0 +1,989 @@
+/*
+ Copyright 2008-2011 Gephi
+ Authors : Mathieu Jacomy <mathieu.jacomy@gmail.com>
+ Website : http://www.gephi.org
+
+ This file is part of Gephi.
+
+ DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+
+ Copyright 2011 Gephi Consortium. All rights reserved.
+
+ The contents of this file are subject to the terms of either the GNU
+ General Public License Version 3 only ("GPL") or the Common
+ Development and Distribution License("CDDL") (collectively, the
+ "License"). You may not use this file except in compliance with the
+ License. You can obtain a copy of the License at
+ http://gephi.org/about/legal/license-notice/
+ or /cddl-1.0.txt and /gpl-3.0.txt. See the License for the
+ specific language governing permissions and limitations under the
+ License.  When distributing the software, include this License Header
+ Notice in each file and include the License files at
+ /cddl-1.0.txt and /gpl-3.0.txt. If applicable, add the following below the
+ License Header, with the fields enclosed by brackets [] replaced by
+ your own identifying information:
+ "Portions Copyrighted [year] [name of copyright owner]"
+
+ If you wish your version of this file to be governed by only the CDDL
+ or only the GPL Version 3, indicate your decision by adding
+ "[Contributor] elects to include this software in this distribution
+ under the [CDDL or GPL Version 3] license." If you do not indicate a
+ single choice of license, a recipient has the option to distribute
+ your version of this file under either the CDDL, the GPL Version 3 or
+ to extend the choice of license to its licensees as provided above.
+ However, if you add GPL Version 3 code and therefore, elected the GPL
+ Version 3 license, then the option applies only if the new code is
+ made subject to such option by the copyright holder.
+
+ Contributor(s):
+ Alina Shlegel
+ Timofey Pushkin
+
+ Portions Copyrighted 2011 Gephi Consortium.
+
+
+ This file is based on ForceAtlas2.java, NodesThread.java and
+ ForceFactory.java: it runs the same computations, but keeps the layout data
+ in primitive arrays instead of Node and ForceAtlas2LayoutData objects, and
+ uses BarnesHutTree instead of Region. The Barnes Hut tree is built on the
+ same fork-join pool as the one used for repulsion. The pool may be shared
+ between layouts, and multi-threaded attraction tasks are split by their
+ estimated costs rather than by equal node ranges. Multi-threaded repulsion is
+ one-sided: each node only sums up the forces applied to itself, so the tasks
+ never write the forces of the nodes of other tasks. Optionally, repulsion is
+ computed in float precision by one-sided loops that can be vectorized.
+ */
+package org.gephi.layout.plugin.forceAtlas2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * ForceAtlas 2 Layout on primitive arrays, manages each step of the
+ * computations.
+ *
+ * <p>
+ * Nodes are given by indices from {@code 0} to {@code nodesNum - 1}, edges are
+ * given by the arrays of their sources, targets and weights. Coordinates,
+ * forces and masses of the nodes are stored in contiguous arrays, so the
+ * force loops do not dereference any objects. With the same random seed and a
+ * single thread, the layout is exactly the same as the one of {@link
+ * ForceAtlas2} for the same graph.
+ * </p>
+ *
+ * <p>
+ * With several threads, a node is not pushed back by the single nodes it
+ * repels during its Barnes Hut traversal, like in the usual Barnes Hut
+ * algorithm, so the layout differs from the single-threaded one. Every force
+ * is then summed up by a single task in a fixed order, so the multi-threaded
+ * layout is deterministic and the same for any number of threads above one.
+ * </p>
+ *
+ * @author Mathieu Jacomy
+ * @author Alina Shlegel
+ * @author Timofey Pushkin
+ */
+public class CompactForceAtlas2 {
+
+    private final int nodesNum;
+    private final int[] edgeSources;
+    private final int[] edgeTargets;
+    private final double[] edgeWeights;
+
+    // Non-loop edges incident to each node: the edges of node n are
+    // incidentEdges[firstIncidentEdgeIndices[n]], ..., incidentEdges[firstIncidentEdgeIndices[n + 1] - 1]
+    private final int[] firstIncidentEdgeIndices;
+    private final int[] incidentEdges;
+
+    // Layout data, package-private for the Barnes Hut tree
+    final double[] x;
+    final double[] y;
+    final double[] dx;
+    final double[] dy;
+    final double[] oldDx;
+    final double[] oldDy;
+    final double[] mass;
+    final double[] size;
+    final boolean[] fixed;
+
+    private double edgeWeightInfluence;
+    private double jitterTolerance;
+    private double scalingRatio;
+    private double gravity;
+    private double speed;
+    private double speedEfficiency;
+    private double swingingPerNode;
+    private double displacementPerNode;
+    private boolean outboundAttractionDistribution;
+    private boolean adjustSizes;
+    private boolean barnesHutOptimize;
+    private double barnesHutTheta;
+    private boolean linLogMode;
+    private boolean strongGravityMode;
+    private boolean floatRepulsion;
+    private float[] floatX;
+    private float[] floatY;
+    private float[] floatMass;
+    private double[] initialX;
+    private double[] initialY;
+    private double[] initialMasses;
+    private int threadCount;
+    private int currentThreadCount;
+    private final BarnesHutTree barnesHutTree;
+    private long treeBuildNanos;
+    private long repulsionNanos;
+    private long attractionNanos;
+    double outboundAttCompensation = 1;
+    private ForkJoinPool pool;
+    private ForkJoinPool sharedPool;
+    private Random random = new Random();
+
+    public CompactForceAtlas2(int nodesNum, int[] edgeSources, int[] edgeTargets, double[] edgeWeights) {
+        if (edgeSources.length != edgeTargets.length || edgeSources.length != edgeWeights.length) {
+            throw new IllegalArgumentException("Edge sources, targets and weights must be of the same length");
+        }
+
+        this.nodesNum = nodesNum;
+        this.edgeSources = edgeSources;
+        this.edgeTargets = edgeTargets;
+        this.edgeWeights = edgeWeights;
+
+        x = new double[nodesNum];
+        y = new double[nodesNum];
+        dx = new double[nodesNum];
+        dy = new double[nodesNum];
+        oldDx = new double[nodesNum];
+        oldDy = new double[nodesNum];
+        mass = new double[nodesNum];
+        size = new double[nodesNum];
+        fixed = new boolean[nodesNum];
+        java.util.Arrays.fill(size, 1);
+        barnesHutTree = new BarnesHutTree(this, nodesNum);
+
+        firstIncidentEdgeIndices = new int[nodesNum + 1];
+        for (int e = 0; e < edgeSources.length; e++) {
+            if (edgeSources[e] != edgeTargets[e]) {
+                firstIncidentEdgeIndices[edgeSources[e] + 1]++;
+                firstIncidentEdgeIndices[edgeTargets[e] + 1]++;
+            }
+        }
+        for (int n = 0; n < nodesNum; n++) {
+            firstIncidentEdgeIndices[n + 1] += firstIncidentEdgeIndices[n];
+        }
+        incidentEdges = new int[firstIncidentEdgeIndices[nodesNum]];
+        int[] nextIncidentEdgeIndices = Arrays.copyOf(firstIncidentEdgeIndices, nodesNum);
+        for (int e = 0; e < edgeSources.length; e++) {
+            if (edgeSources[e] != edgeTargets[e]) {
+                incidentEdges[nextIncidentEdgeIndices[edgeSources[e]]++] = e;
+                incidentEdges[nextIncidentEdgeIndices[edgeTargets[e]]++] = e;
+            }
+        }
+
+        resetPropertiesValues();
+    }
+
+    public void initAlgo() {
+        speed = 1.;
+        speedEfficiency = 1.;
+        swingingPerNode = Double.NaN;
+        displacementPerNode = Double.NaN;
+
+        // Initialise layout data
+        for (int n = 0; n < nodesNum; n++) {
+            // Random coordinates are drawn for all nodes, so that the nodes without initial ones are placed the same way
+            double randomX = ((0.01 + random.nextDouble()) * 1000.0) - 500.0;
+            double randomY = ((0.01 + random.nextDouble()) * 1000.0) - 500.0;
+            if (initialX != null && !Double.isNaN(initialX[n]) && !Double.isNaN(initialY[n])) {
+                x[n] = initialX[n];
+                y[n] = initialY[n];
+            } else {
+                x[n] = randomX;
+                y[n] = randomY;
+            }
+            oldDx[n] = 0;
+            oldDy[n] = 0;
+            dx[n] = 0;
+            dy[n] = 0;
+        }
+        System.arraycopy((initialMasses != null) ? (initialMasses) : (getDegreeMasses()), 0, mass, 0, nodesNum);
+
+        treeBuildNanos = 0;
+        repulsionNanos = 0;
+        attractionNanos = 0;
+
+        // Fork-join workers are daemon threads
+        if (sharedPool != null) {
+            pool = sharedPool;
+            currentThreadCount = sharedPool.getParallelism();
+        } else if (threadCount > 1) {
+            pool = new ForkJoinPool(threadCount);
+            currentThreadCount = threadCount;
+        } else {
+            pool = null;
+            currentThreadCount = 1;
+        }
+    }
+
+    public void goAlgo() {
+        // Initialise layout data
+        System.arraycopy(dx, 0, oldDx, 0, nodesNum);
+        System.arraycopy(dy, 0, oldDy, 0, nodesNum);
+        java.util.Arrays.fill(dx, 0);
+        java.util.Arrays.fill(dy, 0);
+
+        // If Barnes Hut active, build the tree
+        boolean isFloatRepulsionUsed = isFloatRepulsionUsed();
+        if (isBarnesHutOptimize()) {
+            long buildStart = System.nanoTime();
+            barnesHutTree.build((currentThreadCount > 1) ? (pool) : (null));
+            if (isFloatRepulsionUsed) {
+                barnesHutTree.updateFloatNodes();
+            }
+            treeBuildNanos += System.nanoTime() - buildStart;
+        } else if (isFloatRepulsionUsed) {
+            updateFloatNodes();
+        }
+
+        // If outboundAttractionDistribution active, compensate.
+        if (isOutboundAttractionDistribution()) {
+            outboundAttCompensation = 0;
+            for (int n = 0; n < nodesNum; n++) {
+                outboundAttCompensation += mass[n];
+            }
+            outboundAttCompensation /= nodesNum;
+        }
+
+        // Repulsion (and gravity)
+        // NB: Muti-threaded
+        long repulsionStart = System.nanoTime();
+        int taskCount = 8 * currentThreadCount;  // The threadPool Executor Service will manage the fetching of tasks and threads.
+        // We make more tasks than threads because some tasks may need more time to compute.
+        List<Future<?>> threads = new ArrayList<>();
+        for (int t = taskCount; t > 0; t--) {
+            if (currentThreadCount == 1 && !isFloatRepulsionUsed) {
+                // Keeps the ranges and the order of the tasks, which matter as they also update the forces of other nodes
+                applyRepulsionAndGravity((int) Math.floor(nodesNum * (t - 1) / taskCount), (int) Math.floor(nodesNum * t / taskCount));
+            } else {
+                // NB: Every node costs about the same, and a task only writes the forces of its own nodes
+                int from = (int) ((long) nodesNum * (t - 1) / taskCount);
+                int to = (int) ((long) nodesNum * t / taskCount);
+                if (to <= from) {
+                    continue;
+                }
+                if (currentThreadCount == 1) {
+                    applyOneSidedRepulsionAndGravity(from, to);
+                } else {
+                    threads.add(pool.submit(() -> applyOneSidedRepulsionAndGravity(from, to)));
+                }
+            }
+        }
+        awaitAll(threads);
+        repulsionNanos += System.nanoTime() - repulsionStart;
+
+        // Attraction
+        long attractionStart = System.nanoTime();
+        double attractionCoefficient = 1 * ((isOutboundAttractionDistribution()) ? (outboundAttCompensation) : (1));
+        if (currentThreadCount > 1) {
+            // NB: Multi-threaded, the tasks get ranges of nodes with about the same number of incident edges
+            threads.clear();
+            int edgeEndsNum = incidentEdges.length;
+            int from = 0;
+            for (int t = 1; t <= taskCount; t++) {
+                int to = (t == taskCount) ? (nodesNum) : (findNodeByIncidentEdgeIndex((int) ((long) edgeEndsNum * t / taskCount), from));
+                if (to > from) {
+                    int taskFrom = from;
+                    threads.add(pool.submit(() -> applyAttraction(taskFrom, to, attractionCoefficient)));
+                }
+                from = to;
+            }
+            awaitAll(threads);
+        } else if (getEdgeWeightInfluence() == 0) {
+            for (int e = 0; e < edgeSources.length; e++) {
+                applyAttraction(edgeSources[e], edgeTargets[e], 1, attractionCoefficient);
+            }
+        } else if (getEdgeWeightInfluence() == 1) {
+            for (int e = 0; e < edgeSources.length; e++) {
+                applyAttraction(edgeSources[e], edgeTargets[e], edgeWeights[e], attractionCoefficient);
+            }
+        } else {
+            for (int e = 0; e < edgeSources.length; e++) {
+                applyAttraction(edgeSources[e], edgeTargets[e], Math.pow(edgeWeights[e], getEdgeWeightInfluence()), attractionCoefficient);
+            }
+        }
+        attractionNanos += System.nanoTime() - attractionStart;
+
+        // Auto adjust speed
+        double totalSwinging = 0d;  // How much irregular movement
+        double totalEffectiveTraction = 0d;  // Hom much useful movement
+        int movableNodesNum = 0;
+        for (int n = 0; n < nodesNum; n++) {
+            if (!fixed[n]) {
+                double swinging = Math.sqrt(Math.pow(oldDx[n] - dx[n], 2) + Math.pow(oldDy[n] - dy[n], 2));
+                totalSwinging += mass[n] * swinging;   // If the node has a burst change of direction, then it's not converging.
+                totalEffectiveTraction += mass[n] * 0.5 * Math.sqrt(Math.pow(oldDx[n] + dx[n], 2) + Math.pow(oldDy[n] + dy[n], 2));
+                movableNodesNum++;
+            }
+        }
+        swingingPerNode = (movableNodesNum > 0) ? (totalSwinging / movableNodesNum) : (0);
+        // We want that swingingMovement < tolerance * convergenceMovement
+
+        // Optimize jitter tolerance
+        // The 'right' jitter tolerance for this network. Bigger networks need more tolerance. Denser networks need less tolerance. Totally empiric.
+        double estimatedOptimalJitterTolerance = 0.05 * Math.sqrt(nodesNum);
+        double minJT = Math.sqrt(estimatedOptimalJitterTolerance);
+        double maxJT = 10;
+        double jt = jitterTolerance * Math.max(minJT, Math.min(maxJT, estimatedOptimalJitterTolerance * totalEffectiveTraction / Math.pow(nodesNum, 2)));
+
+        double minSpeedEfficiency = 0.05;
+
+        // Protection against erratic behavior
+        if (totalSwinging / totalEffectiveTraction > 2.0) {
+            if (speedEfficiency > minSpeedEfficiency) {
+                speedEfficiency *= 0.5;
+            }
+            jt = Math.max(jt, jitterTolerance);
+        }
+
+        double targetSpeed = jt * speedEfficiency * totalEffectiveTraction / totalSwinging;
+
+        // Speed efficiency is how the speed really corresponds to the swinging vs. convergence tradeoff
+        // We adjust it slowly and carefully
+        if (totalSwinging > jt * totalEffectiveTraction) {
+            if (speedEfficiency > minSpeedEfficiency) {
+                speedEfficiency *= 0.7;
+            }
+        } else if (speed < 1000) {
+            speedEfficiency *= 1.3;
+        }
+
+        // But the speed shoudn't rise too much too quickly, since it would make the convergence drop dramatically.
+        double maxRise = 0.5;   // Max rise: 50%
+        speed = speed + Math.min(targetSpeed - speed, maxRise * speed);
+
+        // Apply forces
+        double totalDisplacement = 0;
+        if (isAdjustSizes()) {
+            // If nodes overlap prevention is active, it's not possible to trust the swinging mesure.
+            for (int n = 0; n < nodesNum; n++) {
+                if (!fixed[n]) {
+
+                    // Adaptive auto-speed: the speed of each node is lowered
+                    // when the node swings.
+                    double swinging = mass[n] * Math.sqrt((oldDx[n] - dx[n]) * (oldDx[n] - dx[n]) + (oldDy[n] - dy[n]) * (oldDy[n] - dy[n]));
+                    double factor = 0.1 * speed / (1f + Math.sqrt(speed * swinging));
+
+                    double df = Math.sqrt(Math.pow(dx[n], 2) + Math.pow(dy[n], 2));
+                    factor = Math.min(factor * df, 10.) / df;
+
+                    double newX = (float) (x[n] + dx[n] * factor);
+                    double newY = (float) (y[n] + dy[n] * factor);
+                    totalDisplacement += Math.sqrt((newX - x[n]) * (newX - x[n]) + (newY - y[n]) * (newY - y[n]));
+                    x[n] = newX;
+                    y[n] = newY;
+                }
+            }
+        } else {
+            for (int n = 0; n < nodesNum; n++) {
+                if (!fixed[n]) {
+
+                    // Adaptive auto-speed: the speed of each node is lowered
+                    // when the node swings.
+                    double swinging = mass[n] * Math.sqrt((oldDx[n] - dx[n]) * (oldDx[n] - dx[n]) + (oldDy[n] - dy[n]) * (oldDy[n] - dy[n]));
+                    double factor = speed / (1f + Math.sqrt(speed * swinging));
+
+                    double newX = (float) (x[n] + dx[n] * factor);
+                    double newY = (float) (y[n] + dy[n] * factor);
+                    totalDisplacement += Math.sqrt((newX - x[n]) * (newX - x[n]) + (newY - y[n]) * (newY - y[n]));
+                    x[n] = newX;
+                    y[n] = newY;
+                }
+            }
+        }
+        displacementPerNode = (movableNodesNum > 0) ? (totalDisplacement / movableNodesNum) : (0);
+    }
+
+    // The same as NodesThread.run, but for the nodes from, ..., to - 1
+    private void applyRepulsionAndGravity(int from, int to) {
+        // Repulsion
+        if (barnesHutOptimize) {
+            for (int n = from; n < to; n++) {
+                barnesHutTree.applyForce(n, barnesHutTheta, false);
+            }
+        } else {
+            for (int n1 = from; n1 < to; n1++) {
+                if (fixed[n1]) {
+                    // Only the forces of the nodes that are not fixed matter
+                    for (int n2 = 0; n2 < n1; n2++) {
+                        if (!fixed[n2]) {
+                            applyRepulsion(n1, n2);
+                        }
+                    }
+                } else {
+                    for (int n2 = 0; n2 < n1; n2++) {
+                        applyRepulsion(n1, n2);
+                    }
+                }
+            }
+        }
+
+        // Gravity
+        for (int n = from; n < to; n++) {
+            if (!fixed[n]) {
+                applyGravity(n, gravity / scalingRatio);
+            }
+        }
+    }
+
+    // The same as applyRepulsionAndGravity, but only the forces of the nodes from, ..., to - 1 are updated: each of
+    // them sums up the repulsion from all the other nodes, or from the cells of its own Barnes Hut traversal, whose
+    // single nodes are not pushed back. The forces of fixed nodes do not matter, so they are not computed.
+    private void applyOneSidedRepulsionAndGravity(int from, int to) {
+        for (int n1 = from; n1 < to; n1++) {
+            if (fixed[n1]) {
+                continue;
+            }
+
+            // Repulsion
+            if (isFloatRepulsionUsed() && barnesHutOptimize) {
+                barnesHutTree.applyFloatForce(n1, barnesHutTheta);
+            } else if (isFloatRepulsionUsed()) {
+                applyFloatRepulsion(n1, floatX, floatY, floatMass, 0, nodesNum);
+            } else if (barnesHutOptimize) {
+                barnesHutTree.applyForce(n1, barnesHutTheta, true);
+            } else {
+                for (int n2 = 0; n2 < nodesNum; n2++) {
+                    if (n2 != n1) {
+                        applyOneSidedRepulsion(n1, n2);
+                    }
+                }
+            }
+
+            // Gravity
+            applyGravity(n1, gravity / scalingRatio);
+        }
+    }
+
+    // Model for node-node repulsion
+    void applyRepulsion(int n1, int n2) {
+        // Get the distance
+        double xDist = x[n1] - x[n2];
+        double yDist = y[n1] - y[n2];
+
+        double factor = getRepulsionFactor(n1, n2, xDist, yDist);
+        if (!Double.isNaN(factor)) {
+            addForce(n1, n2, xDist * factor, yDist * factor);
+        }
+    }
+
+    // The same as applyRepulsion(n1, n2), but only the force of n1 is updated
+    void applyOneSidedRepulsion(int n1, int n2) {
+        // Get the distance
+        double xDist = x[n1] - x[n2];
+        double yDist = y[n1] - y[n2];
+
+        double factor = getRepulsionFactor(n1, n2, xDist, yDist);
+        if (!Double.isNaN(factor)) {
+            dx[n1] += xDist * factor;
+            dy[n1] += yDist * factor;
+        }
+    }
+
+    // Returns force / distance of the repulsion, or NaN if the nodes do not repel each other
+    private double getRepulsionFactor(int n1, int n2, double xDist, double yDist) {
+        if (adjustSizes) {
+            double distance = Math.sqrt(xDist * xDist + yDist * yDist) - size[n1] - size[n2];
+
+            if (distance > 0) {
+                // NB: factor = force / distance
+                return scalingRatio * mass[n1] * mass[n2] / distance / distance;
+            } else if (distance < 0) {
+                return 100 * scalingRatio * mass[n1] * mass[n2];
+            }
+        } else {
+            double distance = (float) Math.sqrt(xDist * xDist + yDist * yDist);
+
+            if (distance > 0) {
+                // NB: factor = force / distance
+                return scalingRatio * mass[n1] * mass[n2] / distance / distance;
+            }
+        }
+        return Double.NaN;
+    }
+
+    // Float model for the repulsion of node n from the nodes from, ..., to - 1 of the given arrays, the same as
+    // applyOneSidedRepulsion(n1, n2) without adjusted sizes. The loop has no branches and no calls, so that it can be
+    // vectorized.
+    void applyFloatRepulsion(int n, float[] xs, float[] ys, float[] masses, int from, int to) {
+        float nX = (float) x[n];
+        float nY = (float) y[n];
+        float xForce = 0;
+        float yForce = 0;
+        for (int i = from; i < to; i++) {
+            float xDist = nX - xs[i];
+            float yDist = nY - ys[i];
+            float squaredDistance = xDist * xDist + yDist * yDist;
+
+            // NB: factor = force / distance / (scalingRatio * mass[n]), the node itself is at distance 0
+            float factor = (squaredDistance > 0) ? (masses[i] / squaredDistance) : (0);
+            xForce += xDist * factor;
+            yForce += yDist * factor;
+        }
+
+        double coefficient = scalingRatio * mass[n];
+        dx[n] += coefficient * xForce;
+        dy[n] += coefficient * yForce;
+    }
+
+    private void updateFloatNodes() {
+        if (floatX == null) {
+            floatX = new float[nodesNum];
+            floatY = new float[nodesNum];
+            floatMass = new float[nodesNum];
+        }
+        for (int n = 0; n < nodesNum; n++) {
+            floatX[n] = (float) x[n];
+            floatY[n] = (float) y[n];
+            floatMass[n] = (float) mass[n];
+        }
+    }
+
+    // Overlap prevention needs the sizes and the exact distances, so it always uses the double model
+    private boolean isFloatRepulsionUsed() {
+        return floatRepulsion && !adjustSizes;
+    }
+
+    // Model for Barnes Hut approximation
+    void applyRepulsion(int n, double regionMass, double regionMassCenterX, double regionMassCenterY) {
+        // Get the distance
+        double xDist = x[n] - regionMassCenterX;
+        double yDist = y[n] - regionMassCenterY;
+        double distance = (float) Math.sqrt(xDist * xDist + yDist * yDist);
+
+        if (distance > 0) {
+            // NB: factor = force / distance
+            double factor = scalingRatio * mass[n] * regionMass / distance / distance;
+
+            dx[n] += xDist * factor;
+            dy[n] += yDist * factor;
+        }
+    }
+
+    // Model for gravitation (anti-repulsion)
+    private void applyGravity(int n, double g) {
+        // Get the distance
+        double xDist = x[n];
+        double yDist = y[n];
+        double distance = (float) Math.sqrt(xDist * xDist + yDist * yDist);
+
+        if (distance > 0) {
+            // NB: factor = force / distance
+            double factor = (strongGravityMode) ? (scalingRatio * mass[n] * g) : (scalingRatio * mass[n] * g / distance);
+
+            dx[n] -= xDist * factor;
+            dy[n] -= yDist * factor;
+        }
+    }
+
+    // Model for node-node attraction (e is for edge weight if needed)
+    private void applyAttraction(int n1, int n2, double e, double coefficient) {
+        if (fixed[n1] && fixed[n2]) {
+            return;
+        }
+
+        // Get the distance
+        double xDist = x[n1] - x[n2];
+        double yDist = y[n1] - y[n2];
+
+        double factor = getAttractionFactor(n1, n2, xDist, yDist, e, coefficient);
+        if (!Double.isNaN(factor)) {
+            addForce(n1, n2, xDist * factor, yDist * factor);
+        }
+    }
+
+    // Attraction of the nodes from, ..., to - 1 by all their edges. Each node only sums up the forces of its own
+    // edges, so the nodes can be processed concurrently and the result does not depend on the scheduling.
+    private void applyAttraction(int from, int to, double coefficient) {
+        for (int n = from; n < to; n++) {
+            if (fixed[n]) {
+                continue;
+            }
+            double nDx = 0;
+            double nDy = 0;
+            for (int i = firstIncidentEdgeIndices[n]; i < firstIncidentEdgeIndices[n + 1]; i++) {
+                int e = incidentEdges[i];
+                int n1 = edgeSources[e];
+                int n2 = edgeTargets[e];
+
+                // Get the distance
+                double xDist = x[n1] - x[n2];
+                double yDist = y[n1] - y[n2];
+
+                double factor = getAttractionFactor(n1, n2, xDist, yDist, getInfluencedWeight(e), coefficient);
+                if (!Double.isNaN(factor)) {
+                    if (n == n1) {
+                        nDx += xDist * factor;
+                        nDy += yDist * factor;
+                    } else {
+                        nDx -= xDist * factor;
+                        nDy -= yDist * factor;
+                    }
+                }
+            }
+            dx[n] += nDx;
+            dy[n] += nDy;
+        }
+    }
+
+    // Returns force / distance of the attraction, or NaN if the nodes do not attract each other
+    private double getAttractionFactor(int n1, int n2, double xDist, double yDist, double e, double coefficient) {
+        // NB: factor = force / distance
+        double factor;
+        if (adjustSizes) {
+            double distance = Math.sqrt(xDist * xDist + yDist * yDist) - size[n1] - size[n2];
+            if (!(distance > 0)) {
+                return Double.NaN;
+            }
+            factor = (linLogMode) ? (-coefficient * e * Math.log(1 + distance) / distance) : (-coefficient * e);
+        } else if (linLogMode) {
+            double distance = (float) Math.sqrt(xDist * xDist + yDist * yDist);
+            if (!(distance > 0)) {
+                return Double.NaN;
+            }
+            factor = -coefficient * e * Math.log(1 + distance) / distance;
+        } else {
+            factor = -coefficient * e;
+        }
+
+        // Distributed by mass (typically, degree)
+        if (outboundAttractionDistribution) {
+            factor /= mass[n1];
+        }
+
+        return factor;
+    }
+
+    private double getInfluencedWeight(int e) {
+        if (edgeWeightInfluence == 0) {
+            return 1;
+        } else if (edgeWeightInfluence == 1) {
+            return edgeWeights[e];
+        } else {
+            return Math.pow(edgeWeights[e], edgeWeightInfluence);
+        }
+    }
+
+    // Returns the first node at or after the given one whose incident edges start at or after the given index
+    private int findNodeByIncidentEdgeIndex(int index, int fromNode) {
+        int low = fromNode;
+        int high = nodesNum;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (firstIncidentEdgeIndices[middle] < index) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void awaitAll(List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (Exception e) {
+                throw new RuntimeException("Unable to layout " + this.getClass().getSimpleName() + ".", e);
+            }
+        }
+    }
+
+    private void addForce(int n1, int n2, double xForce, double yForce) {
+        dx[n1] += xForce;
+        dy[n1] += yForce;
+
+        dx[n2] -= xForce;
+        dy[n2] -= yForce;
+    }
+
+    public boolean canAlgo() {
+        return nodesNum > 0;
+    }
+
+    public void endAlgo() {
+        if (pool != null && pool != sharedPool) {
+            pool.shutdown();
+        }
+    }
+
+    public void resetPropertiesValues() {
+        // Tuning
+        if (nodesNum >= 100) {
+            setScalingRatio(2.0);
+        } else {
+            setScalingRatio(10.0);
+        }
+        setStrongGravityMode(false);
+        setGravity(1.);
+
+        // Behavior
+        setOutboundAttractionDistribution(false);
+        setLinLogMode(false);
+        setAdjustSizes(false);
+        setEdgeWeightInfluence(1.);
+
+        // Performance
+        setJitterTolerance(1d);
+        if (nodesNum >= 1000) {
+            setBarnesHutOptimize(true);
+        } else {
+            setBarnesHutOptimize(false);
+        }
+        setBarnesHutTheta(1.2);
+        setThreadsCount(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    public int getNodesNum() {
+        return nodesNum;
+    }
+
+    public double getX(int n) {
+        return x[n];
+    }
+
+    public double getY(int n) {
+        return y[n];
+    }
+
+    /**
+     * Returns the time spent on building Barnes Hut trees since {@link
+     * #initAlgo()} in nanoseconds.
+     */
+    public long getTreeBuildNanos() {
+        return treeBuildNanos;
+    }
+
+    /**
+     * Returns the time spent on applying repulsion and gravity since {@link
+     * #initAlgo()} in nanoseconds, including the traversals of Barnes Hut
+     * trees.
+     */
+    public long getRepulsionNanos() {
+        return repulsionNanos;
+    }
+
+    /**
+     * Returns the time spent on applying attraction since {@link
+     * #initAlgo()} in nanoseconds.
+     */
+    public long getAttractionNanos() {
+        return attractionNanos;
+    }
+
+    /**
+     * Returns the mass-weighted swinging of the last iteration averaged over
+     * the nodes that are not fixed, or {@code NaN} before the first one.
+     */
+    public double getSwingingPerNode() {
+        return swingingPerNode;
+    }
+
+    /**
+     * Returns the distance the nodes that are not fixed have moved by in the
+     * last iteration on average, or {@code NaN} before the first one.
+     */
+    public double getDisplacementPerNode() {
+        return displacementPerNode;
+    }
+
+    /**
+     * Makes {@link #initAlgo()} start from the given coordinates instead of
+     * random ones, {@code null} arrays restore the random start. Nodes with a
+     * {@code NaN} coordinate are still placed randomly. The arrays are not
+     * copied.
+     */
+    public void setInitialCoordinates(double[] initialX, double[] initialY) {
+        if ((initialX == null) != (initialY == null)) {
+            throw new IllegalArgumentException("Initial x and y coordinates must be both given or both null");
+        }
+        if (initialX != null && (initialX.length != nodesNum || initialY.length != nodesNum)) {
+            throw new IllegalArgumentException("Initial coordinates must be given for all " + nodesNum + " nodes");
+        }
+
+        this.initialX = initialX;
+        this.initialY = initialY;
+    }
+
+    /**
+     * Returns the masses given to the nodes by {@link #initAlgo()} by
+     * default: 1 + the degree of each node, where a self-loop counts once.
+     */
+    public double[] getDegreeMasses() {
+        double[] degreeMasses = new double[nodesNum];
+        java.util.Arrays.fill(degreeMasses, 1);
+        for (int e = 0; e < edgeSources.length; e++) {
+            degreeMasses[edgeSources[e]]++;
+            if (edgeSources[e] != edgeTargets[e]) {
+                degreeMasses[edgeTargets[e]]++;
+            }
+        }
+        return degreeMasses;
+    }
+
+    /**
+     * Makes {@link #initAlgo()} give the nodes the given masses instead of
+     * the ones of {@link #getDegreeMasses()}, a {@code null} array restores
+     * the default. The array is not copied.
+     */
+    public void setInitialMasses(double[] initialMasses) {
+        if (initialMasses != null && initialMasses.length != nodesNum) {
+            throw new IllegalArgumentException("Initial masses must be given for all " + nodesNum + " nodes");
+        }
+
+        this.initialMasses = initialMasses;
+    }
+
+    public void setSeed(long seed) {
+        random = new Random(seed);
+    }
+
+    public double getBarnesHutTheta() {
+        return barnesHutTheta;
+    }
+
+    public void setBarnesHutTheta(double barnesHutTheta) {
+        this.barnesHutTheta = barnesHutTheta;
+    }
+
+    public double getEdgeWeightInfluence() {
+        return edgeWeightInfluence;
+    }
+
+    public void setEdgeWeightInfluence(double edgeWeightInfluence) {
+        this.edgeWeightInfluence = edgeWeightInfluence;
+    }
+
+    public double getJitterTolerance() {
+        return jitterTolerance;
+    }
+
+    public void setJitterTolerance(double jitterTolerance) {
+        this.jitterTolerance = jitterTolerance;
+    }
+
+    public boolean isLinLogMode() {
+        return linLogMode;
+    }
+
+    public void setLinLogMode(boolean linLogMode) {
+        this.linLogMode = linLogMode;
+    }
+
+    public double getScalingRatio() {
+        return scalingRatio;
+    }
+
+    public void setScalingRatio(double scalingRatio) {
+        this.scalingRatio = scalingRatio;
+    }
+
+    public boolean isStrongGravityMode() {
+        return strongGravityMode;
+    }
+
+    public void setStrongGravityMode(boolean strongGravityMode) {
+        this.strongGravityMode = strongGravityMode;
+    }
+
+    public double getGravity() {
+        return gravity;
+    }
+
+    public void setGravity(double gravity) {
+        this.gravity = gravity;
+    }
+
+    public int getThreadsCount() {
+        return threadCount;
+    }
+
+    public void setThreadsCount(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    /**
+     * Returns the pool set by {@link #setPool(ForkJoinPool)}, or {@code null}
+     * if a pool of {@link #getThreadsCount()} threads is created for each run.
+     */
+    public ForkJoinPool getPool() {
+        return sharedPool;
+    }
+
+    /**
+     * Makes the layout run its tasks on the given long-lived pool instead of
+     * creating a new one in {@link #initAlgo()}. The number of threads is
+     * then given by the parallelism of the pool, and the pool is not shut
+     * down by {@link #endAlgo()}. A {@code null} pool restores the default.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.sharedPool = pool;
+    }
+
+    public boolean isFloatRepulsion() {
+        return floatRepulsion;
+    }
+
+    /**
+     * Makes the repulsion be computed in float precision, which is ignored
+     * when sizes are adjusted. The repulsion is then one-sided even with a
+     * single thread, like the multi-threaded one: each node only sums up the
+     * forces applied to itself, so the repulsion of each pair of nodes is
+     * computed twice without the Barnes Hut optimization. With it, cells of a
+     * few nodes are not split any further but are summed up directly.
+     */
+    public void setFloatRepulsion(boolean floatRepulsion) {
+        this.floatRepulsion = floatRepulsion;
+    }
+
+    public boolean isFixed(int n) {
+        return fixed[n];
+    }
+
+    /**
+     * Pins the node at its position: it still repels and attracts the other
+     * nodes, but it is not moved. The forces that only act on fixed nodes are
+     * not computed, except for the ones found by the single-threaded double
+     * precision Barnes Hut traversals of fixed nodes, which also push the
+     * nodes they repel.
+     */
+    public void setFixed(int n, boolean fixed) {
+        this.fixed[n] = fixed;
+    }
+
+    public boolean isOutboundAttractionDistribution() {
+        return outboundAttractionDistribution;
+    }
+
+    public void setOutboundAttractionDistribution(boolean outboundAttractionDistribution) {
+        this.outboundAttractionDistribution = outboundAttractionDistribution;
+    }
+
+    public boolean isAdjustSizes() {
+        return adjustSizes;
+    }
+
+    public void setAdjustSizes(boolean adjustSizes) {
+        this.adjustSizes = adjustSizes;
+    }
+
+    public boolean isBarnesHutOptimize() {
+        return barnesHutOptimize;
+    }
+
+    public void setBarnesHutOptimize(boolean barnesHutOptimize) {
+        this.barnesHutOptimize = barnesHutOptimize;
+    }
+}
@@ -55,6 +55,7 @@
  - Functionality related to the package org.openide.util is removed.
  - Dynamic edge weight support is removed.
  - Thread pool is modified to create daemon threads.
+ - Initial positions are taken from a Random which can be seeded.
  */
 package org.gephi.layout.plugin.forceAtlas2;
 
@@ -65,6 +66,7 @@ import org.gephi.layout.plugin.forceAtlas2.ForceFactory.AttractionForce;
 import org.gephi.layout.plugin.forceAtlas2.ForceFactory.RepulsionForce;
 
 import java.util.ArrayList;
+import java.util.Random;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -94,6 +96,7 @@ public class ForceAtlas2 {
     private Region rootRegion;
     double outboundAttCompensation = 1;
     private ExecutorService pool;
+    private Random random = new Random();
 
     public ForceAtlas2() {
         this.threadCount = Math.min(4, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
@@ -107,8 +110,8 @@ public class ForceAtlas2 {
 
         // Initialise layout data
         for (Node n : nodes) {
-            n.setX(((0.01 + Math.random()) * 1000.0) - 500.0);
-            n.setY(((0.01 + Math.random()) * 1000.0) - 500.0);
+            n.setX(((0.01 + random.nextDouble()) * 1000.0) - 500.0);
+            n.setY(((0.01 + random.nextDouble()) * 1000.0) - 500.0);
 
             if (n.getLayoutData() == null || !(n.getLayoutData() instanceof ForceAtlas2LayoutData)) {
                 ForceAtlas2LayoutData nLayout = new ForceAtlas2LayoutData();
@@ -346,6 +349,10 @@ public class ForceAtlas2 {
         resetPropertiesValues();
     }
 
+    public void setSeed(long seed) {
+        random = new Random(seed);
+    }
+
     public Double getBarnesHutTheta() {
         return barnesHutTheta;
     }
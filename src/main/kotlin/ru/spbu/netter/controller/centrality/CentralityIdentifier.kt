@@ -6,5 +6,9 @@ import ru.spbu.netter.model.Network
 
 interface CentralityIdentifier : Statusable {
 
-    fun identifyCentrality(network: Network, executeOnSuccess: () -> Unit = {})
+    fun identifyCentrality(
+        network: Network,
+        withMaxError: Double = 0.0,
+        executeOnSuccess: () -> Unit = {},
+    )
 }
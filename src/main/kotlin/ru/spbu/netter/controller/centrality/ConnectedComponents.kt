@@ -0,0 +1,102 @@
+package ru.spbu.netter.controller.centrality
+
+import ru.spbu.netter.model.CsrAdjacency
+
+
+/**
+ * Connected components of a network given by its CSR [adjacency], found by breadth-first search labelling in a linear
+ * time. Node ids without links form components of their own.
+ *
+ * Components are numbered in the order of their smallest node ids. The nodes of a component are indexed from zero in
+ * the order of their ids, so an adjacency over these local indices lists the neighbors in the same order as the
+ * original one.
+ */
+internal class ConnectedComponents(adjacency: CsrAdjacency) {
+    private val firstNeighborIndices = adjacency.firstNeighborIndices
+    private val neighbors = adjacency.neighbors
+
+    // The component of each node id
+    private val components = IntArray(firstNeighborIndices.size - 1) { -1 }
+
+    var componentsNum = 0
+        private set
+
+    // The nodes of component c are nodes[firstNodeIndices[c]], ..., nodes[firstNodeIndices[c + 1] - 1] in increasing
+    // order, and localIndices[id] is the position of node id among them
+    private val firstNodeIndices: IntArray
+    private val nodes = IntArray(components.size)
+    private val localIndices = IntArray(components.size)
+
+    init {
+        val queue = nodes
+        for (id in components.indices) {
+            if (components[id] != -1) continue
+
+            var head = 0
+            var tail = 0
+            queue[tail++] = id
+            components[id] = componentsNum
+            while (head < tail) {
+                val node = queue[head++]
+                for (i in firstNeighborIndices[node] until firstNeighborIndices[node + 1]) {
+                    val neighbor = neighbors[i]
+                    if (components[neighbor] == -1) {
+                        components[neighbor] = componentsNum
+                        queue[tail++] = neighbor
+                    }
+                }
+            }
+            componentsNum++
+        }
+
+        // Counting sort of the ids by their components, which keeps the ids of a component in increasing order
+        firstNodeIndices = IntArray(componentsNum + 1)
+        for (component in components) firstNodeIndices[component + 1]++
+        for (c in 1..componentsNum) firstNodeIndices[c] += firstNodeIndices[c - 1]
+
+        val positions = firstNodeIndices.copyOf(componentsNum)
+        for (id in components.indices) {
+            val component = components[id]
+            localIndices[id] = positions[component] - firstNodeIndices[component]
+            nodes[positions[component]++] = id
+        }
+    }
+
+    fun getComponent(id: Int) = components[id]
+
+    fun getSize(component: Int) = firstNodeIndices[component + 1] - firstNodeIndices[component]
+
+    /**
+     * Returns the id of the node of the [component] with the given local [index].
+     */
+    fun getNode(component: Int, index: Int) = nodes[firstNodeIndices[component] + index]
+
+    /**
+     * Returns the adjacency of the [component] over the local indices of its nodes. If the component consists of the
+     * smallest ids, the neighbors of the original adjacency are shared.
+     */
+    fun getAdjacency(component: Int): CsrAdjacency {
+        val size = getSize(component)
+        if (getNode(component, size - 1) == size - 1) {
+            return CsrAdjacency(firstNeighborIndices.copyOf(size + 1), neighbors, 0)
+        }
+
+        val componentFirstNeighborIndices = IntArray(size + 1)
+        for (index in 0 until size) {
+            val node = getNode(component, index)
+            componentFirstNeighborIndices[index + 1] =
+                componentFirstNeighborIndices[index] + firstNeighborIndices[node + 1] - firstNeighborIndices[node]
+        }
+
+        val componentNeighbors = IntArray(componentFirstNeighborIndices[size])
+        var k = 0
+        for (index in 0 until size) {
+            val node = getNode(component, index)
+            for (i in firstNeighborIndices[node] until firstNeighborIndices[node + 1]) {
+                componentNeighbors[k++] = localIndices[neighbors[i]]
+            }
+        }
+
+        return CsrAdjacency(componentFirstNeighborIndices, componentNeighbors, 0)
+    }
+}
@@ -1,10 +1,6 @@
 package ru.spbu.netter.controller.centrality
 
 import mu.KotlinLogging
-import org.jgrapht.Graph
-import org.jgrapht.alg.scoring.HarmonicCentrality
-import org.jgrapht.graph.DefaultEdge
-import org.jgrapht.graph.DefaultUndirectedGraph
 import ru.spbu.netter.model.Network
 import tornadofx.*
 
@@ -12,26 +8,44 @@ import tornadofx.*
 private val logger = KotlinLogging.logger {}
 
 
-class HarmonicCentralityIdentifier : Controller(), CentralityIdentifier {
+class HarmonicCentralityIdentifier internal constructor(private val threadsNum: Int) :
+    Controller(), CentralityIdentifier {
+
+    constructor() : this(Runtime.getRuntime().availableProcessors())
+
     override val status = TaskStatus()
 
-    override fun identifyCentrality(network: Network, executeOnSuccess: () -> Unit) {
+    // Remembers the last exactly inspected network, so that re-inspecting it after adding links is faster
+    private val incrementalCentrality = IncrementalHarmonicCentrality(threadsNum)
+
+    override fun identifyCentrality(network: Network, withMaxError: Double, executeOnSuccess: () -> Unit) {
         if (network.isEmpty()) {
             logger.info { "There is nothing to inspect for centrality: network $network is empty" }
             return
         }
 
-        logger.info { "Identifying centrality..." }
+        // A non-positive max error stands for the exact centrality
+        val nodesNum = network.nodes.size
+        val samplesNum = if (withMaxError > 0) {
+            ParallelHarmonicCentrality.getSamplesNum(nodesNum, withMaxError)
+        } else nodesNum
+        val maxError = ParallelHarmonicCentrality.getMaxError(nodesNum, samplesNum)
 
-        runAsync(true, status) {
-            updateMessage("Centrality identification")
+        logger.info { "Identifying centrality with max error $maxError..." }
 
-            HarmonicCentrality(convertNetwork(network)).scores
-        } success { centralityValues ->
-            network.nodes.values.withEach {
-                centralityValues[id]?.let { centrality = it }
-                    ?: throw IllegalStateException("Node $id not found in the harmonic centrality calculation result")
+        runAsync(true, status) {
+            updateMessage(
+                if (maxError > 0) "Centrality approximation: max error %.2g".format(maxError)
+                else "Centrality identification"
+            )
+
+            if (maxError > 0) {
+                ParallelHarmonicCentrality(threadsNum, isBitParallel = true).computeApproximately(network, samplesNum)
+            } else incrementalCentrality.compute(network).also {
+                logger.info { "Searched from ${incrementalCentrality.lastSearchedSourcesNum} of $nodesNum nodes" }
             }
+        } success { centralityValues ->
+            network.nodes.values.withEach { centrality = centralityValues[id] }
 
             logger.info { "Harmonic centrality identification has been finished" }
 
@@ -40,13 +54,4 @@ class HarmonicCentralityIdentifier : Controller(), CentralityIdentifier {
             throw RuntimeException("Harmonic centrality identification has been failed", ex)
         }
     }
-
-    private fun convertNetwork(network: Network): Graph<Int, DefaultEdge> {
-        val graph = DefaultUndirectedGraph<Int, DefaultEdge>(DefaultEdge::class.java)
-
-        network.nodes.values.forEach { graph.addVertex(it.id) }
-        network.links.forEach { graph.addEdge(it.n1.id, it.n2.id) }
-
-        return graph
-    }
 }
@@ -0,0 +1,208 @@
+package ru.spbu.netter.controller.centrality
+
+import ru.spbu.netter.model.CompactUndirectedNetwork
+import ru.spbu.netter.model.CsrAdjacency
+import ru.spbu.netter.model.Network
+import java.lang.ref.WeakReference
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.math.abs
+
+
+// Past this number of inserted links per node the affected sources are not searched for, since searching from both
+// ends of every inserted link costs about as much as a full recomputation by MS-BFS
+private const val DEFAULT_MAX_INSERTED_LINKS_SHARE = 0.005
+
+
+/**
+ * Computes the harmonic centrality like [ParallelHarmonicCentrality] keeping the sums of the inverse distances of the
+ * last computed network, so that after links are added to it only the affected sources are searched from again.
+ *
+ * Networks only grow and keep their links in the order of insertion, so the links inserted since the last computation
+ * are the ones after the remembered number of links. Adding link `a - b` changes the distances from source `s` only
+ * if `|d(s, a) - d(s, b)| > 1` before the insertion, counting unreachable nodes as infinitely far. Otherwise the old
+ * distances from `s` stay consistent along all the links, so they remain the shortest ones even when several links
+ * are inserted. The affected sources are therefore found by two searches over the old links per inserted link, and
+ * only they are searched from over the new links. Keeping all the distances would take a quadratic memory instead.
+ *
+ * The adjacency of the last network is kept as well, so the old links are not collected again. The adjacency of a
+ * [CompactUndirectedNetwork] is shared with it, since the network replaces its CSR arrays instead of modifying them,
+ * and the adjacency of another network is updated by merging the inserted links into the old one.
+ *
+ * The sums are recomputed from scratch for another network, when the number of links has decreased, when the last
+ * remembered link is not at its index anymore, which cheaply detects links replaced in place, or when more than
+ * [maxInsertedLinksShare] links per node have been inserted.
+ */
+internal class IncrementalHarmonicCentrality(
+    private val threadsNum: Int,
+    private val maxInsertedLinksShare: Double = DEFAULT_MAX_INSERTED_LINKS_SHARE,
+) {
+    private val engine = ParallelHarmonicCentrality(threadsNum, isBitParallel = true)
+
+    private var lastNetwork = WeakReference<Network>(null)
+    private var lastLinksNum = 0
+    private var lastLinkSource = -1
+    private var lastLinkTarget = -1
+    private var lastAdjacency = CsrAdjacency(IntArray(1), IntArray(0), 0)
+
+    // The sums of the inverse distances from the nodes of the last network indexed by their ids
+    private var lastSums = DoubleArray(0)
+
+    /**
+     * The number of sources whose sums have been recomputed by the last computation.
+     */
+    var lastSearchedSourcesNum = 0
+        private set
+
+    /**
+     * Returns the centralities of the nodes of the [network] indexed by their ids.
+     */
+    @Synchronized
+    fun compute(network: Network): DoubleArray {
+        val nodesNum = network.nodes.size
+        val linksNum = network.links.size
+        val idBound = if (network is CompactUndirectedNetwork) {
+            network.idBound
+        } else (network.nodes.keys.maxOrNull() ?: -1) + 1
+
+        val insertedLinksNum = linksNum - lastLinksNum
+        val isUpdatable = lastNetwork.get() === network && insertedLinksNum >= 0 &&
+                insertedLinksNum <= maxInsertedLinksShare * nodesNum && idBound >= lastAdjacency.idBound &&
+                (lastLinksNum == 0 || getLinkSource(network, lastLinksNum - 1) == lastLinkSource &&
+                        getLinkTarget(network, lastLinksNum - 1) == lastLinkTarget)
+
+        val adjacency: CsrAdjacency
+        val sums: DoubleArray
+        if (isUpdatable) {
+            val (insertedSources, insertedTargets) = getLinks(network, lastLinksNum)
+            val oldAdjacency = lastAdjacency.withIdBound(idBound)
+            adjacency = if (network is CompactUndirectedNetwork) {
+                getAdjacency(network)
+            } else oldAdjacency.withLinks(insertedSources, insertedTargets)
+
+            val affectedSources = findAffectedSources(oldAdjacency, insertedSources, insertedTargets)
+            sums = lastSums.copyOf(idBound)
+            engine.sumInverseDistances(adjacency, affectedSources, sums)
+            lastSearchedSourcesNum = affectedSources.size
+        } else {
+            adjacency = if (network is CompactUndirectedNetwork) {
+                getAdjacency(network)
+            } else getLinks(network, 0).let { (sources, targets) ->
+                CsrAdjacency.build(idBound, sources, targets, linksNum)
+            }
+
+            sums = engine.sumInverseDistances(adjacency)
+            lastSearchedSourcesNum = nodesNum
+        }
+
+        lastNetwork = WeakReference(network)
+        lastLinksNum = linksNum
+        lastLinkSource = if (linksNum > 0) getLinkSource(network, linksNum - 1) else -1
+        lastLinkTarget = if (linksNum > 0) getLinkTarget(network, linksNum - 1) else -1
+        lastAdjacency = adjacency
+        lastSums = sums
+
+        val normalizer = if (nodesNum > 1) nodesNum - 1.0 else 1.0
+        return DoubleArray(idBound) { sums[it] / normalizer }
+    }
+
+    private fun getAdjacency(network: CompactUndirectedNetwork) =
+        CsrAdjacency(network.firstNeighborIndices, network.neighbors, network.selfLoopsNum)
+
+    private fun getLinkSource(network: Network, index: Int) =
+        if (network is CompactUndirectedNetwork) network.getLinkSource(index) else network.links.elementAt(index).n1.id
+
+    private fun getLinkTarget(network: Network, index: Int) =
+        if (network is CompactUndirectedNetwork) network.getLinkTarget(index) else network.links.elementAt(index).n2.id
+
+    // Returns the sources and the targets of the links of the network starting from the given index
+    private fun getLinks(network: Network, from: Int): Pair<IntArray, IntArray> {
+        val linksNum = network.links.size - from
+        val sources = IntArray(linksNum)
+        val targets = IntArray(linksNum)
+        if (network is CompactUndirectedNetwork) {
+            for (i in 0 until linksNum) {
+                sources[i] = network.getLinkSource(from + i)
+                targets[i] = network.getLinkTarget(from + i)
+            }
+        } else {
+            network.links.asSequence().drop(from).forEachIndexed { i, link ->
+                sources[i] = link.n1.id
+                targets[i] = link.n2.id
+            }
+        }
+
+        return sources to targets
+    }
+
+    // Returns the sources whose distances are changed by inserting links sources[i] - targets[i] into the network
+    // with the old adjacency
+    private fun findAffectedSources(oldAdjacency: CsrAdjacency, sources: IntArray, targets: IntArray): IntArray {
+        val isAffected = BooleanArray(oldAdjacency.idBound)
+        val nextLink = AtomicInteger()
+        val to = sources.size
+
+        // The flags are only ever set, and the pool is joined before they are read
+        runWorkers(if (to <= 1) 1 else threadsNum) {
+            val searchA = DistancesSearch(oldAdjacency)
+            val searchB = DistancesSearch(oldAdjacency)
+            while (true) {
+                val link = nextLink.getAndIncrement()
+                if (link >= to) break
+                if (sources[link] == targets[link]) continue
+
+                searchA.search(sources[link])
+                searchB.search(targets[link])
+                searchA.forEachReached { node, levelA ->
+                    val levelB = searchB.levels[node]
+                    if (levelB == 0 || abs(levelA - levelB) > 1) isAffected[node] = true
+                }
+                searchB.forEachReached { node, _ -> if (searchA.levels[node] == 0) isAffected[node] = true }
+                searchA.clear()
+                searchB.clear()
+            }
+        }
+
+        return isAffected.indices.filter { isAffected[it] }.toIntArray()
+    }
+}
+
+/**
+ * Breadth-first search keeping the distances to the reached nodes until they are cleared.
+ */
+private class DistancesSearch(adjacency: CsrAdjacency) {
+    private val firstNeighborIndices = adjacency.firstNeighborIndices
+    private val neighbors = adjacency.neighbors
+
+    // The distance plus one for the nodes reached by the last search, zero for the others
+    val levels = IntArray(firstNeighborIndices.size - 1)
+
+    private val queue = IntArray(levels.size)
+    private var reachedNodesNum = 0
+
+    fun search(source: Int) {
+        var head = 0
+        queue[reachedNodesNum++] = source
+        levels[source] = 1
+
+        while (head < reachedNodesNum) {
+            val node = queue[head++]
+            val neighborLevel = levels[node] + 1
+            for (i in firstNeighborIndices[node] until firstNeighborIndices[node + 1]) {
+                val neighbor = neighbors[i]
+                if (levels[neighbor] == 0) {
+                    levels[neighbor] = neighborLevel
+                    queue[reachedNodesNum++] = neighbor
+                }
+            }
+        }
+    }
+
+    inline fun forEachReached(action: (node: Int, level: Int) -> Unit) {
+        for (k in 0 until reachedNodesNum) queue[k].let { action(it, levels[it]) }
+    }
+
+    fun clear() {
+        for (k in 0 until reachedNodesNum) levels[queue[k]] = 0
+        reachedNodesNum = 0
+    }
+}
@@ -0,0 +1,438 @@
+package ru.spbu.netter.controller.centrality
+
+import ru.spbu.netter.model.CompactUndirectedNetwork
+import ru.spbu.netter.model.CsrAdjacency
+import ru.spbu.netter.model.Network
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.math.ceil
+import kotlin.math.ln
+import kotlin.math.sqrt
+import kotlin.random.Random
+
+
+// The number of sources a worker takes at once, which is also the number of sources of a bit-parallel search
+private const val SOURCES_BLOCK_SIZE = Long.SIZE_BITS
+
+// The probability with which the error of an approximation may exceed its reported bound
+private const val APPROXIMATION_FAILURE_PROBABILITY = 0.1
+
+
+/**
+ * Computes the harmonic centrality of the nodes of an unweighted network given by its CSR adjacency.
+ *
+ * The centrality of node `s` is the sum of `1 / d(s, u)` over all the other nodes `u`, where unreachable nodes are at
+ * an infinite distance, divided by the number of nodes minus one, like the normalized scores of JGraphT. A breadth-first
+ * search is run from every node within its connected component over arrays sized to the component. The sources are
+ * taken in blocks by [threadsNum] workers, the largest components first, and each worker reuses its search arrays while
+ * it stays in the same component. The inverse distances of a search are summed up in the order of node ids, so for
+ * networks with nodes listed in the order of their ids the scores are exactly the same as the ones of JGraphT.
+ *
+ * If [isBitParallel] is `true`, a block of sources is searched at once by a multi-source BFS (MS-BFS): each node keeps
+ * the sources that have reached it and the ones that are in its frontier as bits of `long` words, so a link is followed
+ * once for all the sources of the block. The inverse distances are then summed up level by level, so the scores may
+ * differ from the ones of JGraphT by rounding.
+ *
+ * An approximation can be computed instead by searching only from a random sample of pivots, which takes a nearly
+ * linear time in the size of the network for a fixed error, see [computeApproximately].
+ */
+internal class ParallelHarmonicCentrality(private val threadsNum: Int, private val isBitParallel: Boolean = false) {
+
+    init {
+        require(threadsNum > 0) { "Wrong threads number: it must be positive but was $threadsNum" }
+    }
+
+    companion object {
+
+        /**
+         * Returns the number of pivots for which the absolute errors of the approximate centralities of a network of
+         * [nodesNum] nodes are at most [maxError], see [getMaxError].
+         */
+        fun getSamplesNum(nodesNum: Int, maxError: Double): Int {
+            require(maxError > 0) { "Wrong max error: it must be positive but was $maxError" }
+            if (nodesNum <= 1) return nodesNum
+
+            val meanError = maxError * (nodesNum - 1) / nodesNum
+            val samplesNum = ceil(ln(2 * nodesNum / APPROXIMATION_FAILURE_PROBABILITY) / (2 * meanError * meanError))
+            return minOf(samplesNum, nodesNum.toDouble()).toInt()
+        }
+
+        /**
+         * Returns the bound of the absolute errors of the approximate centralities of a network of [nodesNum] nodes
+         * computed from [samplesNum] pivots.
+         *
+         * An approximate centrality is `n / (n - 1)` times the mean of [samplesNum] inverse distances, each of which is
+         * in `[0, 1]`, so by the Hoeffding inequality and the union bound over the nodes all the errors are within the
+         * returned bound with the probability of at least 1 - [APPROXIMATION_FAILURE_PROBABILITY]. The errors are zero
+         * if all the nodes are pivots.
+         */
+        fun getMaxError(nodesNum: Int, samplesNum: Int): Double {
+            if (samplesNum >= nodesNum) return 0.0
+            require(samplesNum > 0) { "Wrong samples number: it must be positive but was $samplesNum" }
+
+            val meanError = sqrt(ln(2 * nodesNum / APPROXIMATION_FAILURE_PROBABILITY) / (2 * samplesNum))
+            return nodesNum * meanError / (nodesNum - 1)
+        }
+    }
+
+    /**
+     * Returns the centralities of the nodes of the [network] indexed by their ids. The adjacency of a
+     * [CompactUndirectedNetwork] is shared as is, the one of any other network is built over its ids.
+     */
+    fun compute(network: Network): DoubleArray = compute(toAdjacency(network), network.nodes.size)
+
+    /**
+     * Returns the centralities indexed by node ids. Ids which are not used by any of the [nodesNum] nodes have no links
+     * and get zero centralities.
+     */
+    fun compute(adjacency: CsrAdjacency, nodesNum: Int): DoubleArray {
+        val centralities = sumInverseDistances(adjacency)
+        val normalizer = if (nodesNum > 1) nodesNum - 1.0 else 1.0
+        for (id in centralities.indices) centralities[id] /= normalizer
+
+        return centralities
+    }
+
+    /**
+     * Returns the sums of the inverse distances from each node to all the other nodes indexed by node ids.
+     *
+     * Isolated nodes, including the ones with self-loops only, get zero sums and the nodes of two-node components get
+     * unit sums without any search. The other components are split into blocks of sources ordered from the largest
+     * component to the smallest one, so that a large component is searched by all the workers and small components
+     * fill the remaining time.
+     */
+    fun sumInverseDistances(adjacency: CsrAdjacency): DoubleArray {
+        val components = ConnectedComponents(adjacency)
+        val sums = DoubleArray(adjacency.firstNeighborIndices.size - 1)
+
+        val searchedComponents = mutableListOf<Int>()
+        for (component in 0 until components.componentsNum) {
+            when (components.getSize(component)) {
+                1 -> Unit
+                2 -> {
+                    sums[components.getNode(component, 0)] = 1.0
+                    sums[components.getNode(component, 1)] = 1.0
+                }
+                else -> searchedComponents.add(component)
+            }
+        }
+        searchedComponents.sortByDescending { components.getSize(it) }
+
+        val componentAdjacencies = searchedComponents.map { components.getAdjacency(it) }
+        val blockComponents = mutableListOf<Int>()
+        val blockStarts = mutableListOf<Int>()
+        searchedComponents.forEachIndexed { i, component ->
+            for (blockStart in 0 until components.getSize(component) step SOURCES_BLOCK_SIZE) {
+                blockComponents.add(i)
+                blockStarts.add(blockStart)
+            }
+        }
+        val nextBlock = AtomicInteger()
+
+        runWorkers(if (blockStarts.size <= 1) 1 else threadsNum) {
+            var searchedComponent = -1
+            lateinit var search: InverseDistancesSearch
+            var componentSums = DoubleArray(0)
+            while (true) {
+                val block = nextBlock.getAndIncrement()
+                if (block >= blockStarts.size) break
+
+                val i = blockComponents[block]
+                val component = searchedComponents[i]
+                val size = components.getSize(component)
+                if (component != searchedComponent) {
+                    val componentAdjacency = componentAdjacencies[i]
+                    searchedComponent = component
+                    search = if (isBitParallel) {
+                        MultiSourceBreadthFirstSearch(componentAdjacency)
+                    } else BreadthFirstSearch(componentAdjacency)
+                    componentSums = DoubleArray(size)
+                }
+
+                val blockStart = blockStarts[block]
+                val blockEnd = minOf(blockStart + SOURCES_BLOCK_SIZE, size)
+                search.sumInverseDistances(blockStart, blockEnd, componentSums)
+                for (index in blockStart until blockEnd) {
+                    sums[components.getNode(component, index)] = componentSums[index]
+                }
+            }
+        }
+
+        return sums
+    }
+
+    /**
+     * Returns the approximate centralities of the nodes of the [network] indexed by their ids, searching only from
+     * [samplesNum] pivots drawn without replacement.
+     *
+     * Since the network is undirected, the distance from a node to a pivot is the one from the pivot to the node, so
+     * the inverse distances found by the search from a pivot are added to the sums of the reached nodes. The sums are
+     * scaled by the inverse share of the pivots, which makes the approximations unbiased. The pivots are searched from
+     * by MS-BFS regardless of [isBitParallel], and each worker sums up into its own array. If [samplesNum] is at least
+     * the number of nodes, the exact centralities are computed.
+     */
+    fun computeApproximately(network: Network, samplesNum: Int, seed: Long = 42): DoubleArray {
+        require(samplesNum > 0) { "Wrong samples number: it must be positive but was $samplesNum" }
+
+        val nodesNum = network.nodes.size
+        if (samplesNum >= nodesNum) return compute(network)
+
+        val adjacency = toAdjacency(network)
+        val idBound = adjacency.firstNeighborIndices.size - 1
+
+        // The first samplesNum ids of a partial Fisher-Yates shuffle
+        val random = Random(seed)
+        val pivots = network.nodes.keys.toIntArray()
+        for (i in 0 until samplesNum) {
+            val j = random.nextInt(i, nodesNum)
+            pivots[i] = pivots[j].also { pivots[j] = pivots[i] }
+        }
+
+        val nextPivot = AtomicInteger()
+        val partialSums = runWorkers(if (samplesNum <= SOURCES_BLOCK_SIZE) 1 else threadsNum) {
+            val search = MultiSourceBreadthFirstSearch(adjacency)
+            val sums = DoubleArray(idBound)
+            while (true) {
+                val blockStart = nextPivot.getAndAdd(SOURCES_BLOCK_SIZE)
+                if (blockStart >= samplesNum) break
+
+                val blockEnd = minOf(blockStart + SOURCES_BLOCK_SIZE, samplesNum)
+                search.sumInverseDistancesToTargets(pivots, blockStart, blockEnd, sums)
+            }
+            sums
+        }
+
+        val scale = nodesNum.toDouble() / samplesNum / (nodesNum - 1)
+        return DoubleArray(idBound) { id -> partialSums.sumOf { it[id] } * scale }
+    }
+
+    /**
+     * Writes the sums of the inverse distances from the [sources] to all the other nodes into [sums] at the ids of the
+     * sources, leaving the other sums as they are. The sums are not divided by the number of nodes minus one, and the
+     * sources are searched from by MS-BFS regardless of [isBitParallel].
+     */
+    fun sumInverseDistances(adjacency: CsrAdjacency, sources: IntArray, sums: DoubleArray) {
+        val nextSource = AtomicInteger()
+
+        runWorkers(if (sources.size <= SOURCES_BLOCK_SIZE) 1 else threadsNum) {
+            val search = MultiSourceBreadthFirstSearch(adjacency)
+            while (true) {
+                val blockStart = nextSource.getAndAdd(SOURCES_BLOCK_SIZE)
+                if (blockStart >= sources.size) break
+
+                val blockEnd = minOf(blockStart + SOURCES_BLOCK_SIZE, sources.size)
+                search.sumInverseDistances(sources, blockStart, blockEnd, sums)
+            }
+        }
+    }
+
+    private fun toAdjacency(network: Network): CsrAdjacency {
+        if (network is CompactUndirectedNetwork) {
+            return CsrAdjacency(network.firstNeighborIndices, network.neighbors, network.selfLoopsNum)
+        }
+
+        val sources = IntArray(network.links.size)
+        val targets = IntArray(network.links.size)
+        network.links.forEachIndexed { i, link ->
+            sources[i] = link.n1.id
+            targets[i] = link.n2.id
+        }
+        val idBound = (network.nodes.keys.maxOrNull() ?: -1) + 1
+
+        return CsrAdjacency.build(idBound, sources, targets, sources.size)
+    }
+}
+
+/**
+ * Runs the [worker] by [workersNum] threads of a pool created for this run and returns the results.
+ */
+internal fun <T> runWorkers(workersNum: Int, worker: () -> T): List<T> {
+    if (workersNum == 1) return listOf(worker())
+
+    val pool = ForkJoinPool(workersNum)
+    try {
+        return pool.invokeAll(List(workersNum) { Callable(worker) }).map { result ->
+            try {
+                result.get()
+            } catch (ex: ExecutionException) {
+                throw ex.cause ?: ex
+            }
+        }
+    } finally {
+        pool.shutdownNow()
+    }
+}
+
+private interface InverseDistancesSearch {
+
+    /**
+     * Writes the sums of the inverse distances from the sources [from], ..., [to] - 1 to all the other nodes into
+     * [sums] at the indices of the sources.
+     */
+    fun sumInverseDistances(from: Int, to: Int, sums: DoubleArray)
+}
+
+/**
+ * Breadth-first search over arrays allocated once for all the sources.
+ */
+private class BreadthFirstSearch(adjacency: CsrAdjacency) : InverseDistancesSearch {
+    private val firstNeighborIndices = adjacency.firstNeighborIndices
+    private val neighbors = adjacency.neighbors
+
+    // The distance plus one for the nodes reached by the current search, zero for the others
+    private val levels = IntArray(firstNeighborIndices.size - 1)
+    private val queue = IntArray(levels.size)
+
+    override fun sumInverseDistances(from: Int, to: Int, sums: DoubleArray) {
+        for (source in from until to) sums[source] = sumInverseDistances(source)
+    }
+
+    private fun sumInverseDistances(source: Int): Double {
+        var head = 0
+        var tail = 0
+        queue[tail++] = source
+        levels[source] = 1
+
+        var minReached = source
+        var maxReached = source
+        while (head < tail) {
+            val node = queue[head++]
+            val neighborLevel = levels[node] + 1
+            for (i in firstNeighborIndices[node] until firstNeighborIndices[node + 1]) {
+                val neighbor = neighbors[i]
+                if (levels[neighbor] == 0) {
+                    levels[neighbor] = neighborLevel
+                    queue[tail++] = neighbor
+                    if (neighbor < minReached) minReached = neighbor
+                    if (neighbor > maxReached) maxReached = neighbor
+                }
+            }
+        }
+
+        // Unreached nodes add nothing, so only the range of the reached ones is summed up and cleared
+        var sum = 0.0
+        for (node in minReached..maxReached) {
+            val level = levels[node]
+            if (level > 1) sum += 1.0 / (level - 1)
+            levels[node] = 0
+        }
+        return sum
+    }
+}
+
+/**
+ * Bit-parallel breadth-first search from up to [Long.SIZE_BITS] sources at once over arrays allocated once for all
+ * the sources. Bit `i` of a word of a node stands for the `i`-th source of the current block.
+ */
+private class MultiSourceBreadthFirstSearch(adjacency: CsrAdjacency) : InverseDistancesSearch {
+    private val firstNeighborIndices = adjacency.firstNeighborIndices
+    private val neighbors = adjacency.neighbors
+
+    // The sources that have reached each node, the sources in the frontier of each node and the ones in its next one
+    private val seen = LongArray(firstNeighborIndices.size - 1)
+    private val visit = LongArray(seen.size)
+    private val visitNext = LongArray(seen.size)
+
+    // The nodes with non-empty frontiers and the nodes with non-empty next frontiers
+    private var frontier = IntArray(seen.size)
+    private var nextFrontier = IntArray(seen.size)
+
+    private val reachedNodes = IntArray(seen.size)
+
+    override fun sumInverseDistances(from: Int, to: Int, sums: DoubleArray) {
+        for (source in from until to) sums[source] = 0.0
+
+        search(to - from, { from + it }) { _, newBits, inverseLevel ->
+            var bits = newBits
+            while (bits != 0L) {
+                sums[from + bits.countTrailingZeroBits()] += inverseLevel
+                bits = bits and (bits - 1)
+            }
+        }
+    }
+
+    /**
+     * Writes the sums of the inverse distances from the sources `sources[from]`, ..., `sources[to - 1]` to all the
+     * other nodes into [sums] at the ids of the sources.
+     */
+    fun sumInverseDistances(sources: IntArray, from: Int, to: Int, sums: DoubleArray) {
+        for (i in from until to) sums[sources[i]] = 0.0
+
+        search(to - from, { sources[from + it] }) { _, newBits, inverseLevel ->
+            var bits = newBits
+            while (bits != 0L) {
+                sums[sources[from + bits.countTrailingZeroBits()]] += inverseLevel
+                bits = bits and (bits - 1)
+            }
+        }
+    }
+
+    /**
+     * Adds the sums of the inverse distances from the sources `sources[from]`, ..., `sources[to - 1]` to each node to
+     * [sums] at the index of the node.
+     */
+    fun sumInverseDistancesToTargets(sources: IntArray, from: Int, to: Int, sums: DoubleArray) {
+        search(to - from, { sources[from + it] }) { node, newBits, inverseLevel ->
+            sums[node] += newBits.countOneBits() * inverseLevel
+        }
+    }
+
+    // Searches from sourceAt(0), ..., sourceAt(sourcesNum - 1) passing each node reached by some sources at a level,
+    // the bits of these sources and the inverse level to onReached
+    private inline fun search(
+        sourcesNum: Int,
+        sourceAt: (Int) -> Int,
+        onReached: (node: Int, newBits: Long, inverseLevel: Double) -> Unit,
+    ) {
+        var frontierSize = 0
+        var reachedNodesNum = 0
+        for (i in 0 until sourcesNum) {
+            val source = sourceAt(i)
+            val bit = 1L shl i
+            seen[source] = bit
+            visit[source] = bit
+            frontier[frontierSize++] = source
+            reachedNodes[reachedNodesNum++] = source
+        }
+
+        var level = 0
+        while (frontierSize > 0) {
+            level++
+            val inverseLevel = 1.0 / level
+
+            // Only the sources that have not reached a neighbor yet are passed to it
+            var nextFrontierSize = 0
+            for (k in 0 until frontierSize) {
+                val node = frontier[k]
+                val bits = visit[node]
+                for (i in firstNeighborIndices[node] until firstNeighborIndices[node + 1]) {
+                    val neighbor = neighbors[i]
+                    val newBits = bits and seen[neighbor].inv()
+                    if (newBits != 0L) {
+                        if (visitNext[neighbor] == 0L) nextFrontier[nextFrontierSize++] = neighbor
+                        visitNext[neighbor] = visitNext[neighbor] or newBits
+                    }
+                }
+                visit[node] = 0L
+            }
+
+            for (k in 0 until nextFrontierSize) {
+                val node = nextFrontier[k]
+                val newBits = visitNext[node]
+                if (seen[node] == 0L) reachedNodes[reachedNodesNum++] = node
+                seen[node] = seen[node] or newBits
+                visit[node] = newBits
+                visitNext[node] = 0L
+
+                onReached(node, newBits, inverseLevel)
+            }
+
+            frontier = nextFrontier.also { nextFrontier = frontier }
+            frontierSize = nextFrontierSize
+        }
+
+        for (k in 0 until reachedNodesNum) seen[reachedNodes[k]] = 0L
+    }
+}
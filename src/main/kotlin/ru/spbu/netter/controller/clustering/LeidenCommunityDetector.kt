@@ -3,10 +3,11 @@ package ru.spbu.netter.controller.clustering
 import mu.KotlinLogging
 import nl.cwts.networkanalysis.Clustering
 import nl.cwts.networkanalysis.LeidenAlgorithm
-import nl.cwts.networkanalysis.Network as LeidenNetwork
+import nl.cwts.networkanalysis.ParallelLocalMovingAlgorithm
 import ru.spbu.netter.model.Network
 import tornadofx.*
 import java.util.*
+import java.util.concurrent.ForkJoinPool
 
 
 private val logger = KotlinLogging.logger {}
@@ -17,10 +18,16 @@ private const val ITERATIONS_NUM = 0
 // Sets the randomness factor used by the algorithm in its refinement phase
 private const val RANDOMNESS = 1e-2
 
+// The number of threads used by the local moving and refinement phases of the algorithm
+private val THREADS_NUM = Runtime.getRuntime().availableProcessors()
+
 
 class LeidenCommunityDetector : Controller(), CommunityDetector {
     override val status = TaskStatus()
 
+    // The pool is shared by all runs, its idle workers are stopped by the pool itself
+    private val pool = ForkJoinPool(THREADS_NUM)
+
     override fun detectCommunities(network: Network, resolution: Double, executeOnSuccess: () -> Unit) {
         if (network.isEmpty()) {
             logger.info { "There is nothing to inspect for communities: network $network is empty" }
@@ -29,11 +36,25 @@ class LeidenCommunityDetector : Controller(), CommunityDetector {
 
         logger.info { "Detecting communities with resolution $resolution..." }
 
-        val convertedNetwork = convertNetwork(network)
+        val convertedNetwork = LeidenNetworkAdapter.convert(network)
         val clustering = Clustering(convertedNetwork.nNodes)
 
         require(resolution > 0) { "Wrong resolution: resolution must be positive but was $resolution" }
-        val leidenAlgorithm = LeidenAlgorithm(resolution, ITERATIONS_NUM, RANDOMNESS, Random())
+        val random = Random()
+        val leidenAlgorithm = LeidenAlgorithm(
+            resolution,
+            ITERATIONS_NUM,
+            RANDOMNESS,
+            ParallelLocalMovingAlgorithm(
+                resolution,
+                LeidenAlgorithm.DEFAULT_N_ITERATIONS,
+                pool,
+                ParallelLocalMovingAlgorithm.DEFAULT_BATCH_SIZE,
+                random,
+            ),
+            pool,
+            random,
+        )
 
         runAsync(true, status) {
             updateMessage("Community detection")
@@ -50,18 +71,6 @@ class LeidenCommunityDetector : Controller(), CommunityDetector {
         }
     }
 
-    private fun convertNetwork(network: Network): LeidenNetwork {
-        with(network.links.toTypedArray()) {
-            return LeidenNetwork(
-                network.nodes.size,
-                false,
-                arrayOf(IntArray(size) { this[it].n1.id }, IntArray(size) { this[it].n2.id }),
-                false,
-                false,
-            )
-        }
-    }
-
     private fun applyClustering(network: Network, clustering: Clustering) {
         require(network.nodes.size == clustering.nNodes) {
             "Clustering application failed: network nodes number (${network.nodes.size}) differs from clustering nodes number (${clustering.nNodes})"
@@ -0,0 +1,42 @@
+package ru.spbu.netter.controller.clustering
+
+import nl.cwts.networkanalysis.Network as LeidenNetwork
+import nl.cwts.util.Arrays
+import ru.spbu.netter.model.CompactUndirectedNetwork
+import ru.spbu.netter.model.CsrAdjacency
+import ru.spbu.netter.model.Network
+
+
+/**
+ * Converts networks into the networks used by the Leiden algorithm.
+ *
+ * The adjacency of a [CompactUndirectedNetwork] is shared as is, the adjacency of any other network is built with a
+ * counting sort in a linear time. In both cases nodes and links are unweighted.
+ */
+internal object LeidenNetworkAdapter {
+
+    fun convert(network: Network): LeidenNetwork {
+        val nodesNum = network.nodes.size
+
+        val adjacency = if (network is CompactUndirectedNetwork && network.idBound == nodesNum) {
+            CsrAdjacency(network.firstNeighborIndices, network.neighbors, network.selfLoopsNum)
+        } else {
+            val sources = IntArray(network.links.size)
+            val targets = IntArray(network.links.size)
+            network.links.forEachIndexed { i, link ->
+                sources[i] = link.n1.id
+                targets[i] = link.n2.id
+            }
+            CsrAdjacency.build(nodesNum, sources, targets, sources.size)
+        }
+
+        return LeidenNetwork.createSharingArrays(
+            Arrays.createDoubleArrayOfOnes(nodesNum),
+            adjacency.firstNeighborIndices,
+            adjacency.neighbors,
+            Arrays.createDoubleArrayOfOnes(adjacency.neighbors.size),
+            adjacency.selfLoopsNum.toDouble(),
+            false,
+        )
+    }
+}
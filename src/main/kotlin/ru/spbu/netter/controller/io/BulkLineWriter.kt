@@ -0,0 +1,88 @@
+package ru.spbu.netter.controller.io
+
+import java.io.Closeable
+import java.nio.ByteBuffer
+import java.nio.channels.WritableByteChannel
+
+
+private const val DEFAULT_BUFFER_SIZE = 1 shl 20
+
+private const val MINUS = '-'.code.toByte()
+private const val ZERO = '0'.code.toByte()
+private const val DOT = '.'.code.toByte()
+
+// A long has at most 19 digits and a sign, a double is written in at most 24 characters by Double.toString
+private const val MAX_NUMBER_LENGTH = 32
+
+// Integral doubles less than 10^7 by absolute value are written by Double.toString as plain digits followed by ".0"
+private const val MAX_PLAIN_INTEGRAL_DOUBLE = 1e7
+
+
+/**
+ * Writes text lines to the [channel] through a reusable byte buffer.
+ *
+ * Numbers are formatted right into the buffer and written the same way as by [Int.toString] and [Double.toString], so
+ * no strings are created per value. Only ASCII text is supported. The channel is closed by [close].
+ */
+internal class BulkLineWriter(
+    private val channel: WritableByteChannel,
+    bufferSize: Int = DEFAULT_BUFFER_SIZE,
+) : Closeable {
+    private val buffer = ByteBuffer.allocateDirect(bufferSize.coerceAtLeast(MAX_NUMBER_LENGTH))
+    private val digits = ByteArray(MAX_NUMBER_LENGTH)
+    private val doubleChars = StringBuilder(MAX_NUMBER_LENGTH)
+
+    fun writeByte(value: Byte) {
+        ensureRemaining(1)
+        buffer.put(value)
+    }
+
+    fun writeAscii(value: String) {
+        for (char in value) writeByte(char.code.toByte())
+    }
+
+    fun writeInt(value: Int) = writeLong(value.toLong())
+
+    fun writeDouble(value: Double) {
+        if (value == Math.rint(value) && value > -MAX_PLAIN_INTEGRAL_DOUBLE && value < MAX_PLAIN_INTEGRAL_DOUBLE) {
+            if (value == 0.0 && 1.0 / value < 0) writeByte(MINUS)
+            writeLong(value.toLong())
+            ensureRemaining(2)
+            buffer.put(DOT).put(ZERO)
+            return
+        }
+
+        doubleChars.setLength(0)
+        doubleChars.append(value)
+        ensureRemaining(doubleChars.length)
+        for (i in doubleChars.indices) buffer.put(doubleChars[i].code.toByte())
+    }
+
+    fun flush() {
+        buffer.flip()
+        while (buffer.hasRemaining()) channel.write(buffer)
+        buffer.clear()
+    }
+
+    override fun close() {
+        channel.use { flush() }
+    }
+
+    private fun writeLong(value: Long) {
+        // Digits are collected from the lowest one with a non-positive remainder, so that Long.MIN_VALUE is supported
+        var remainder = if (value < 0) value else -value
+        var digitsNum = 0
+        do {
+            digits[digitsNum++] = (ZERO - remainder % 10).toByte()
+            remainder /= 10
+        } while (remainder != 0L)
+
+        ensureRemaining(digitsNum + 1)
+        if (value < 0) buffer.put(MINUS)
+        while (digitsNum > 0) buffer.put(digits[--digitsNum])
+    }
+
+    private fun ensureRemaining(bytesNum: Int) {
+        if (buffer.remaining() < bytesNum) flush()
+    }
+}
@@ -0,0 +1,270 @@
+package ru.spbu.netter.controller.io
+
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+
+
+private const val LF = '\n'.code.toByte()
+private const val CR = '\r'.code.toByte()
+private const val PLUS = '+'.code.toByte()
+private const val MINUS = '-'.code.toByte()
+private const val DOT = '.'.code.toByte()
+private const val ZERO = '0'.code.toByte()
+private const val NINE = '9'.code.toByte()
+
+private const val DEFAULT_WINDOW_SIZE = 1L shl 30
+private const val LINE_BREAK_SEARCH_BUFFER_SIZE = 1 shl 12
+
+// Integers up to 10^15 and powers of ten up to 10^22 are exact doubles, so a product or a quotient of them is rounded
+// correctly (Clinger's fast path)
+private const val MAX_FAST_SIGNIFICANT_DIGITS = 15
+private const val MAX_FAST_EXPONENT = 22
+private const val MAX_EXPONENT_DIGITS = 4
+private val POWERS_OF_TEN = DoubleArray(MAX_FAST_EXPONENT + 1).apply {
+    this[0] = 1.0
+    for (i in 1 until size) this[i] = this[i - 1] * 10
+}
+
+
+/**
+ * Reads the bytes from [start] until [end] of a file line by line through memory-mapped windows of its [channel] and
+ * splits the lines into columns by the [delimiter]. The channel is not closed by the reader, so multiple readers may
+ * share it.
+ *
+ * Lines end with `\n`, `\r` or `\r\n`, like in [java.io.BufferedReader.readLine]. Columns are parsed right from the
+ * mapped bytes. Strings are only created for values that are not plain ASCII decimals, so that such values follow the
+ * rules of [String.toIntOrNull] and [String.toDoubleOrNull] exactly.
+ *
+ * Each line together with its line break must be shorter than [windowSize].
+ */
+internal class MappedLineReader(
+    private val channel: FileChannel,
+    private val delimiter: Byte,
+    start: Long = 0,
+    private val end: Long = channel.size(),
+    private val windowSize: Long = DEFAULT_WINDOW_SIZE,
+) {
+    private var windowStart = start
+    private var window = map(start)
+    private var position = 0
+
+    private var columnStarts = IntArray(8)
+    private var columnEnds = IntArray(8)
+    private var stringBytes = ByteArray(64)
+
+    var columnsNum = 0
+        private set
+
+    val isLineEmpty get() = columnsNum == 1 && columnStarts[0] == columnEnds[0]
+
+    @PublishedApi
+    internal var isParseFailed = false
+
+    /**
+     * The position in the file right after the last read line.
+     */
+    val filePosition get() = windowStart + position
+
+    fun hasRemaining() = filePosition < end
+
+    /**
+     * Reads the next line and returns `true`, or returns `false` if the end of the file has been reached.
+     */
+    fun readLine(): Boolean {
+        if (!hasRemaining()) return false
+
+        if (!scanLine()) {
+            window = map(windowStart + position)
+            if (!scanLine()) throw IOException("Line at byte ${windowStart} is longer than $windowSize bytes")
+        }
+        return true
+    }
+
+    inline fun parseInt(column: Int, onError: () -> Nothing): Int {
+        val value = parseIntOrFail(column)
+        if (isParseFailed) onError()
+        return value
+    }
+
+    inline fun parseDouble(column: Int, onError: () -> Nothing): Double {
+        val value = parseDoubleOrFail(column)
+        if (isParseFailed) onError()
+        return value
+    }
+
+    private fun map(start: Long): MappedByteBuffer {
+        windowStart = start
+        position = 0
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, minOf(windowSize, end - start))
+    }
+
+    // Splits the line starting at the current position, returns `false` if the line does not end in the window
+    private fun scanLine(): Boolean {
+        val limit = window.limit()
+        val isLastWindow = windowStart + limit == end
+        var columnStart = position
+        columnsNum = 0
+
+        for (i in position until limit) {
+            when (window.get(i)) {
+                delimiter -> {
+                    addColumn(columnStart, i)
+                    columnStart = i + 1
+                }
+                LF -> {
+                    addColumn(columnStart, i)
+                    position = i + 1
+                    return true
+                }
+                CR -> {
+                    if (i + 1 == limit && !isLastWindow) return false
+                    addColumn(columnStart, i)
+                    position = if (i + 1 < limit && window.get(i + 1) == LF) i + 2 else i + 1
+                    return true
+                }
+            }
+        }
+        if (!isLastWindow) return false
+
+        addColumn(columnStart, limit)
+        position = limit
+        return true
+    }
+
+    private fun addColumn(start: Int, end: Int) {
+        if (columnsNum == columnStarts.size) {
+            columnStarts = columnStarts.copyOf(2 * columnsNum)
+            columnEnds = columnEnds.copyOf(2 * columnsNum)
+        }
+        columnStarts[columnsNum] = start
+        columnEnds[columnsNum] = end
+        columnsNum++
+    }
+
+    @PublishedApi
+    internal fun parseIntOrFail(column: Int): Int {
+        var i = columnStarts[column]
+        val end = columnEnds[column]
+        isParseFailed = false
+
+        if (i < end && (window.get(i) == MINUS || window.get(i) == PLUS)) i++
+        if (i == end) return fail()
+
+        val isNegative = window.get(columnStarts[column]) == MINUS
+        val limit = if (isNegative) -Int.MIN_VALUE.toLong() else Int.MAX_VALUE.toLong()
+        var value = 0L
+        while (i < end) {
+            val byte = window.get(i++)
+            if (!byte.isDigit()) return if (byte < 0) parseString(column).toIntOrNull() ?: fail() else fail()
+            value = 10 * value + (byte - ZERO)
+            if (value > limit) return fail()
+        }
+
+        return (if (isNegative) -value else value).toInt()
+    }
+
+    @PublishedApi
+    internal fun parseDoubleOrFail(column: Int): Double {
+        var i = columnStarts[column]
+        val end = columnEnds[column]
+        isParseFailed = false
+
+        val isNegative = i < end && window.get(i) == MINUS
+        if (i < end && (window.get(i) == MINUS || window.get(i) == PLUS)) i++
+
+        var significand = 0L
+        var significantDigitsNum = 0
+        var digitsNum = 0
+        var exponent = 0
+        var isFraction = false
+        while (i < end) {
+            val byte = window.get(i)
+            if (byte.isDigit()) {
+                digitsNum++
+                if (significantDigitsNum > 0 || byte != ZERO) significantDigitsNum++
+                significand = 10 * significand + (byte - ZERO)
+                if (isFraction) exponent--
+                if (significantDigitsNum > MAX_FAST_SIGNIFICANT_DIGITS) return parseDoubleString(column)
+            } else if (byte == DOT && !isFraction) {
+                isFraction = true
+            } else {
+                break
+            }
+            i++
+        }
+        if (digitsNum == 0) return parseDoubleString(column)
+
+        if (i < end && (window.get(i) == 'e'.code.toByte() || window.get(i) == 'E'.code.toByte())) {
+            i++
+            val isExponentNegative = i < end && window.get(i) == MINUS
+            if (i < end && (window.get(i) == MINUS || window.get(i) == PLUS)) i++
+
+            var explicitExponent = 0
+            var exponentDigitsNum = 0
+            while (i < end && window.get(i).isDigit()) {
+                explicitExponent = 10 * explicitExponent + (window.get(i++) - ZERO)
+                if (++exponentDigitsNum > MAX_EXPONENT_DIGITS) return parseDoubleString(column)
+            }
+            if (exponentDigitsNum == 0) return parseDoubleString(column)
+            exponent += if (isExponentNegative) -explicitExponent else explicitExponent
+        }
+        if (i < end) return parseDoubleString(column)
+
+        val value = when {
+            significand == 0L -> 0.0
+            exponent in 0..MAX_FAST_EXPONENT -> significand * POWERS_OF_TEN[exponent]
+            exponent in -MAX_FAST_EXPONENT until 0 -> significand / POWERS_OF_TEN[-exponent]
+            else -> return parseDoubleString(column)
+        }
+        return if (isNegative) -value else value
+    }
+
+    private fun parseDoubleString(column: Int) = parseString(column).toDoubleOrNull() ?: fail().toDouble()
+
+    private fun parseString(column: Int): String {
+        val start = columnStarts[column]
+        val length = columnEnds[column] - start
+        if (stringBytes.size < length) stringBytes = ByteArray(maxOf(length, 2 * stringBytes.size))
+        for (k in 0 until length) stringBytes[k] = window.get(start + k)
+
+        return String(stringBytes, 0, length, Charsets.UTF_8)
+    }
+
+    private fun Byte.isDigit() = this >= ZERO && this <= NINE
+
+    private fun fail(): Int {
+        isParseFailed = true
+        return 0
+    }
+}
+
+/**
+ * Returns the position of the first line start at or after [from], or the size of the file if there is none. The
+ * position right after a line break is a line start.
+ */
+internal fun FileChannel.findLineStart(from: Long): Long {
+    if (from == 0L) return 0L
+
+    val buffer = ByteBuffer.allocate(LINE_BREAK_SEARCH_BUFFER_SIZE)
+    var bufferStart = from - 1
+    while (true) {
+        buffer.clear()
+        val readNum = read(buffer, bufferStart)
+        if (readNum <= 0) return size()
+
+        for (i in 0 until readNum) {
+            when (buffer.get(i)) {
+                LF -> return bufferStart + i + 1
+                CR -> {
+                    val next = if (i + 1 < readNum) buffer.get(i + 1) else ByteBuffer.allocate(1).let {
+                        if (read(it, bufferStart + i + 1) == 1) it.get(0) else null
+                    }
+                    return bufferStart + i + if (next == LF) 2 else 1
+                }
+            }
+        }
+        bufferStart += readNum
+    }
+}
@@ -0,0 +1,74 @@
+package ru.spbu.netter.controller.io
+
+import ru.spbu.netter.model.Network
+
+
+/**
+ * Writes networks to Neo4j by parameterized `UNWIND` statements, each of which sends up to [chunkSize] rows.
+ *
+ * Every statement is passed to [runCount] together with its parameters, so that each of them may be run in a separate
+ * transaction. A statement returns a single count, which [runCount] must return.
+ */
+internal class Neo4jBatchWriter(
+    private val chunkSize: Int,
+    private val runCount: (query: String, parameters: Map<String, Any>) -> Long,
+) {
+
+    init {
+        require(chunkSize > 0) { "Wrong chunk size: chunk size must be positive but was $chunkSize" }
+    }
+
+    /**
+     * Deletes all the nodes and their links by chunks of nodes, returns the number of the deleted nodes.
+     */
+    fun deleteNodes(): Long {
+        var deletedNum = 0L
+        do {
+            val chunkDeletedNum = runCount(DELETE_NODES_QUERY, mapOf(LIMIT_PARAMETER to chunkSize))
+            deletedNum += chunkDeletedNum
+        } while (chunkDeletedNum > 0)
+        return deletedNum
+    }
+
+    fun createNodes(network: Network) {
+        for (nodes in network.nodes.values.asSequence().chunked(chunkSize)) {
+            val rows = nodes.map {
+                mapOf("id" to it.id, "community" to it.community, "centrality" to it.centrality, "x" to it.x, "y" to it.y)
+            }
+            runCount(CREATE_NODES_QUERY, mapOf(ROWS_PARAMETER to rows))
+        }
+    }
+
+    /**
+     * Creates the links of the network, its nodes must have already been created.
+     */
+    fun createLinks(network: Network) {
+        for (links in network.links.asSequence().chunked(chunkSize)) {
+            val rows = links.map { mapOf("id1" to it.n1.id, "id2" to it.n2.id) }
+            runCount(CREATE_LINKS_QUERY, mapOf(ROWS_PARAMETER to rows))
+        }
+    }
+
+    companion object {
+        const val ROWS_PARAMETER = "rows"
+        const val LIMIT_PARAMETER = "limit"
+
+        const val DELETE_NODES_QUERY =
+            "MATCH (n:NODE) WITH n LIMIT \$$LIMIT_PARAMETER DETACH DELETE n RETURN count(*)"
+
+        const val CREATE_NODES_QUERY =
+            "UNWIND \$$ROWS_PARAMETER AS row " +
+                    "CREATE (:NODE{id:row.id, community:row.community, centrality:row.centrality, x:row.x, y:row.y}) " +
+                    "RETURN count(*)"
+
+        const val CREATE_LINKS_QUERY =
+            "UNWIND \$$ROWS_PARAMETER AS row " +
+                    "MATCH (n1:NODE{id:row.id1}) " +
+                    "MATCH (n2:NODE{id:row.id2}) " +
+                    "CREATE (n1)-[:LINK]->(n2) " +
+                    "RETURN count(*)"
+
+        const val CREATE_ID_CONSTRAINT_QUERY =
+            "CREATE CONSTRAINT node_id IF NOT EXISTS ON (n:NODE) ASSERT n.id IS UNIQUE"
+    }
+}
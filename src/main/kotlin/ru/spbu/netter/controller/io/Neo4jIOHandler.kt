@@ -13,8 +13,15 @@ import kotlin.math.max
 
 private val logger = KotlinLogging.logger {}
 
+private const val DEFAULT_CHUNK_SIZE = 10_000
 
-class Neo4jIOHandler : Controller(), UriIOHandler, Closeable {
+
+/**
+ * Imports and exports networks from and to a Neo4j database as `NODE` nodes connected by `LINK` relationships.
+ *
+ * Exports are sent in parameterized statements of up to [chunkSize] nodes or links, each run in its own transaction.
+ */
+class Neo4jIOHandler(private val chunkSize: Int = DEFAULT_CHUNK_SIZE) : Controller(), UriIOHandler, Closeable {
     private lateinit var driver: Driver
 
     override fun importNetwork(network: Network, uri: String, username: String, password: String) {
@@ -48,31 +55,23 @@ class Neo4jIOHandler : Controller(), UriIOHandler, Closeable {
         openDriver(uri, username, password)
         val session = driver.session()
 
-        session.handleTransaction(Session::writeTransaction) { tx ->
-            tx.run("MATCH (n:NODE), (:NODE)-[l:LINK]->(:NODE) DETACH DELETE n, l")
+        val writer = Neo4jBatchWriter(chunkSize) { query, parameters ->
+            session.handleTransaction(Session::writeTransaction) { tx -> tx.run(query, parameters).single()[0].asLong() }
         }
 
+        writer.deleteNodes()
+
         logger.info { "Database was successfully cleaned" }
 
         session.handleTransaction(Session::writeTransaction) { tx ->
-            for (entry in network.nodes) with(entry.value) {
-                tx.run(
-                    "CREATE (n:NODE{id:$id, community:$community, centrality:$centrality, x:$x, y:$y})"
-                )
-            }
+            tx.run(Neo4jBatchWriter.CREATE_ID_CONSTRAINT_QUERY).consume()
         }
 
+        writer.createNodes(network)
+
         logger.info { "Nodes were successfully recorded" }
 
-        session.handleTransaction(Session::writeTransaction) { tx ->
-            for (link in network.links) with(link) {
-                tx.run(
-                    "MATCH (n1:NODE{id:${n1.id}})  " +
-                            "MATCH (n2:NODE{id:${n2.id}}) " +
-                            "CREATE (n1)-[:LINK]->(n2)"
-                )
-            }
-        }
+        writer.createLinks(network)
 
         logger.info { "Links were successfully recorded" }
 
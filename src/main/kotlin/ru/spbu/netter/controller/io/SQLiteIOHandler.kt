@@ -6,6 +6,7 @@ import tornadofx.Controller
 import java.io.File
 import org.jetbrains.exposed.sql.*
 import org.jetbrains.exposed.sql.transactions.transaction
+import org.sqlite.SQLiteConfig
 import java.nio.file.Files
 import ru.spbu.netter.model.Network
 import java.lang.NumberFormatException
@@ -16,20 +17,30 @@ private val logger = KotlinLogging.logger {}
 private const val LINKS_TABLE_NAME = "links"
 private const val NODES_TABLE_NAME = "nodes"
 
+// The number of rows inserted by a single JDBC batch
+private const val INSERT_BATCH_SIZE = 10_000
 
+// The page cache size in KiB, SQLite takes negative cache sizes as KiB instead of pages
+private const val PAGE_CACHE_SIZE_KIB = 64 * 1024
+
+
+/**
+ * Imports and exports networks as SQLite databases with tables of links and nodes.
+ *
+ * Rows are exported in JDBC batches of prepared statements.
+ */
 class SQLiteIOHandler : Controller(), FileIOHandler {
 
     override fun importNetwork(network: Network, file: File) {
         logger.info { "Import has started" }
 
-        Database.connect("jdbc:sqlite:${file.path}", "org.sqlite.JDBC")
+        connect(file, false)
 
         var linksAreProvided = false
         var nodesAreProvided = false
 
         try {
             transaction {
-                addLogger(StdOutSqlLogger)
                 for (tblName in SqliteMaster.selectAll()) {
                     if (tblName[SqliteMaster.tblName] == LINKS_TABLE_NAME) linksAreProvided = true
                     if (tblName[SqliteMaster.tblName] == NODES_TABLE_NAME) nodesAreProvided = true
@@ -55,13 +66,25 @@ class SQLiteIOHandler : Controller(), FileIOHandler {
     }
 
     override fun exportNetwork(network: Network, file: File) {
+        exportNetwork(network, file, false)
+    }
+
+    /**
+     * Exports the network like [exportNetwork], but SQLite keeps the rollback journal in memory and does not sync the
+     * file to disk, so an interrupted export may leave a corrupted file.
+     */
+    fun exportNetworkHighThroughput(network: Network, file: File) {
+        exportNetwork(network, file, true)
+    }
+
+    private fun exportNetwork(network: Network, file: File, isHighThroughput: Boolean) {
         try {
             Files.createDirectories(file.toPath().parent)
         } catch (ex: SecurityException) {
             throw HandledIOException("Parent dir ${file.toPath().parent} cannot be created: no read-write access", ex)
         }
 
-        Database.connect("jdbc:sqlite:${file.path}", "org.sqlite.JDBC")
+        connect(file, isHighThroughput)
 
         transaction {
             try {
@@ -73,22 +96,22 @@ class SQLiteIOHandler : Controller(), FileIOHandler {
 
             logger.info { "Empty tables were created" }
 
-            for (link in network.links) {
-                Links.insert {
-                    it[id1] = link.n1.id
-                    it[id2] = link.n2.id
+            for (links in network.links.asSequence().chunked(INSERT_BATCH_SIZE)) {
+                Links.batchInsert(links, shouldReturnGeneratedValues = false) { link ->
+                    this[Links.id1] = link.n1.id
+                    this[Links.id2] = link.n2.id
                 }
             }
 
             logger.info { "Links have been exported" }
 
-            for (node in network.nodes) {
-                Nodes.insert {
-                    it[id] = node.value.id
-                    it[community] = node.value.community
-                    it[centrality] = node.value.centrality
-                    it[x] = node.value.x
-                    it[y] = node.value.y
+            for (nodes in network.nodes.values.asSequence().chunked(INSERT_BATCH_SIZE)) {
+                Nodes.batchInsert(nodes, shouldReturnGeneratedValues = false) { node ->
+                    this[Nodes.id] = node.id
+                    this[Nodes.community] = node.community
+                    this[Nodes.centrality] = node.centrality
+                    this[Nodes.x] = node.x
+                    this[Nodes.y] = node.y
                 }
             }
 
@@ -98,11 +121,24 @@ class SQLiteIOHandler : Controller(), FileIOHandler {
         logger.info { "Export has been finished" }
     }
 
+    private fun connect(file: File, isHighThroughput: Boolean) {
+        val config = SQLiteConfig().apply {
+            setCacheSize(-PAGE_CACHE_SIZE_KIB)
+            setTempStore(SQLiteConfig.TempStore.MEMORY)
+
+            if (isHighThroughput) {
+                setJournalMode(SQLiteConfig.JournalMode.MEMORY)
+                setSynchronous(SQLiteConfig.SynchronousMode.OFF)
+            }
+        }
+
+        Database.connect({ config.createConnection("jdbc:sqlite:${file.path}") })
+    }
+
     private fun parseNodes(network: Network) {
         logger.info { "Parsing nodes..." }
 
         transaction {
-            addLogger(StdOutSqlLogger)
             for (node in Nodes.selectAll()) {
                 try {
                     val parsedId = node[Nodes.id]
@@ -145,7 +181,6 @@ class SQLiteIOHandler : Controller(), FileIOHandler {
         logger.info { "Parsing links..." }
 
         transaction {
-            addLogger(StdOutSqlLogger)
             for (link in Links.selectAll()) {
                 try {
                     val parsedId1 = link[Links.id1]
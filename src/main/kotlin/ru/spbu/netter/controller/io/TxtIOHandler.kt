@@ -1,29 +1,53 @@
 package ru.spbu.netter.controller.io
 
 import mu.KotlinLogging
+import ru.spbu.netter.model.CompactUndirectedNetwork
+import ru.spbu.netter.model.LinkKeySet
 import ru.spbu.netter.model.Network
 import tornadofx.*
 import java.io.File
 import java.io.FileNotFoundException
+import java.io.FileOutputStream
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.channels.Channels
+import java.nio.channels.FileChannel
 import java.nio.file.Files
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.zip.GZIPInputStream
+import java.util.zip.GZIPOutputStream
 
 
 private val logger = KotlinLogging.logger {}
 
-private const val COLUMN_DELIMITER = " "
+private const val COLUMN_DELIMITER_BYTE = ' '.code.toByte()
+private const val LINE_END_BYTE = '\n'.code.toByte()
 private const val LINK_INPUT_COLUMNS_NUM = 2
 private const val NODE_SIMPLE_INPUT_COLUMNS_NUM = 3
 private const val NODE_COORDS_INPUT_COLUMNS_NUM = 5
 
+// The number of bytes of the links block parsed by a single thread at once
+private const val LINKS_CHUNK_SIZE = 8L shl 20
 
-class TxtIOHandler : Controller(), FileIOHandler {
+// The first bytes of any gzip file
+private const val GZIP_MAGIC_BYTE_1 = 0x1f.toByte()
+private const val GZIP_MAGIC_BYTE_2 = 0x8b.toByte()
 
-    override fun importNetwork(network: Network, file: File) {
-        val parsingMethods = listOf(::parseLink, ::parseNode)
-        var lineNum = 0
 
-        val bufferedReader = try {
-            file.bufferedReader()
+class TxtIOHandler internal constructor(
+    private val threadsNum: Int,
+    private val linksChunkSize: Long,
+) : Controller(), FileIOHandler {
+
+    constructor() : this(Runtime.getRuntime().availableProcessors(), LINKS_CHUNK_SIZE)
+
+    override fun importNetwork(network: Network, file: File) {
+        val channel = try {
+            RandomAccessFile(file, "r").channel
         } catch (ex: FileNotFoundException) {
             logger.error(ex) { "Input file ${file.path} not found" }
             throw HandledIOException("Input file not found", ex)
@@ -32,23 +56,7 @@ class TxtIOHandler : Controller(), FileIOHandler {
             throw HandledIOException("Input file cannot be read: no read access", ex)
         }
 
-        bufferedReader.use { reader ->
-            parsingMethods.forEach { parseColumns ->
-                while (reader.ready()) {
-                    val line = reader.readLine()
-                    lineNum++
-
-                    if (line.isEmpty()) break
-
-                    with(line.split(COLUMN_DELIMITER)) {
-                        parseColumns(network, this, lineNum)
-                        addSkippedNodes(network, first().toInt())
-                    }
-                }
-            }
-
-            if (reader.ready()) logger.warn { "Excessive lines found after blank line $lineNum. Skipping..." }
-        }
+        channel.use { if (it.isGzipped()) parseGzipped(network, it) else NetworkParser(network, it).parse() }
 
         if (network.isEmpty()) {
             logger.error { "The provided network is empty" }
@@ -56,77 +64,159 @@ class TxtIOHandler : Controller(), FileIOHandler {
         }
     }
 
-    private fun parseLink(network: Network, columns: List<String>, lineNum: Int) {
-        if (columns.size != LINK_INPUT_COLUMNS_NUM) {
-            handleInputError(lineNum, "expected $LINK_INPUT_COLUMNS_NUM columns but was ${columns.size}")
-        }
+    private fun FileChannel.isGzipped(): Boolean {
+        val magicBytes = ByteBuffer.allocate(2)
+        read(magicBytes, 0)
+        return magicBytes.position() == 2 && magicBytes[0] == GZIP_MAGIC_BYTE_1 && magicBytes[1] == GZIP_MAGIC_BYTE_2
+    }
+
+    // The parser maps the file into memory, so the gzipped file is decompressed into a temporary file first
+    private fun parseGzipped(network: Network, channel: FileChannel) {
+        val decompressedFile = Files.createTempFile("netter-import", ".txt").toFile()
+        try {
+            try {
+                GZIPInputStream(Channels.newInputStream(channel)).use { input ->
+                    decompressedFile.outputStream().use { input.copyTo(it) }
+                }
+            } catch (ex: IOException) {
+                logger.error(ex) { "Gzipped input file cannot be decompressed" }
+                throw HandledIOException("Gzipped input file cannot be decompressed", ex)
+            }
 
-        if (!columns[0].isInt() || !columns[1].isInt()) {
-            handleInputError(lineNum, "node ids must be integers")
+            RandomAccessFile(decompressedFile, "r").channel.use { NetworkParser(network, it).parse() }
+        } finally {
+            decompressedFile.delete()
         }
+    }
 
-        val parsedId1 = columns[0].toInt()
-        val parsedId2 = columns[1].toInt()
+    private inner class NetworkParser(private val network: Network, private val channel: FileChannel) {
+        private var lineNum = 0
 
-        if (parsedId1 < IOHandlerData.MIN_NODE_ID || parsedId2 < IOHandlerData.MIN_NODE_ID) {
-            handleInputError(lineNum, "node ids must be not less than ${IOHandlerData.MIN_NODE_ID}")
-        }
+        // All the ids in [MIN_NODE_ID, presentIdsBound) are known to be present in the network
+        private var presentIdsBound = IOHandlerData.MIN_NODE_ID
 
-        network.addLink(parsedId1, parsedId2)
+        fun parse() {
+            val nodesBlockStart = parseLinks() ?: return
 
-        addSkippedNodes(network, parsedId2)
-    }
+            val reader = MappedLineReader(channel, COLUMN_DELIMITER_BYTE, nodesBlockStart)
+            while (reader.readLine()) {
+                lineNum++
 
-    private fun parseNode(network: Network, columns: List<String>, lineNum: Int) {
-        if (columns.size != NODE_SIMPLE_INPUT_COLUMNS_NUM && columns.size != NODE_COORDS_INPUT_COLUMNS_NUM) {
-            handleInputError(
-                lineNum,
-                "expected $NODE_SIMPLE_INPUT_COLUMNS_NUM or $NODE_COORDS_INPUT_COLUMNS_NUM columns but was ${columns.size}"
-            )
-        }
+                if (reader.isLineEmpty) break
+
+                addSkippedNodes(parseNode(reader))
+            }
 
-        if (!columns[0].isInt() || !columns[1].isInt() || !columns[2].isDouble()) {
-            handleInputError(lineNum, "node id and community must be integers, centrality must be decimal")
+            if (reader.hasRemaining()) logger.warn { "Excessive lines found after blank line $lineNum. Skipping..." }
         }
 
-        val parsedId = columns[0].toInt()
-        val parsedCommunity = columns[1].toInt()
-        val parsedCentrality = columns[2].toDouble()
-        var parsedX: Double? = null
-        var parsedY: Double? = null
+        /**
+         * Parses the links block in chunks of whole lines, on multiple threads if there are multiple chunks. The
+         * chunks are merged into the network in the file order, so the result and the reported errors are the same as
+         * if the lines were parsed one by one. Returns the start of the nodes block, if there is one.
+         */
+        private fun parseLinks(): Long? {
+            val fileSize = channel.size()
+            val executor = if (threadsNum > 1 && fileSize > linksChunkSize) {
+                Executors.newFixedThreadPool(threadsNum)
+            } else {
+                null
+            }
+
+            try {
+                var chunkStart = 0L
+                while (chunkStart < fileSize) {
+                    val chunks = mutableListOf<LinksChunk>()
+                    repeat(if (executor != null) threadsNum else 1) {
+                        if (chunkStart < fileSize) {
+                            val chunkEnd = channel.findLineStart(minOf(chunkStart + linksChunkSize, fileSize))
+                            chunks.add(LinksChunk(channel, chunkStart, chunkEnd))
+                            chunkStart = chunkEnd
+                        }
+                    }
+
+                    val results = chunks.map { chunk -> executor?.submit(Callable { chunk.parse() }) }
+                    for ((chunk, result) in chunks.zip(results)) {
+                        if (result == null) chunk.parse() else awaitChunk(result)
 
-        if (parsedId < IOHandlerData.MIN_NODE_ID) {
-            handleInputError(lineNum, "node id must be not less than ${IOHandlerData.MIN_NODE_ID}")
+                        mergeLinks(chunk)
+                        chunk.errorMessage?.let { handleInputError(lineNum, it) }
+                        if (chunk.blockEnd != null) return chunk.blockEnd
+                    }
+                }
+            } finally {
+                executor?.shutdownNow()
+            }
+
+            return null
         }
 
-        if (parsedCommunity < IOHandlerData.MIN_COMMUNITY) {
-            handleInputError(lineNum, "community must be not less than ${IOHandlerData.MIN_COMMUNITY}")
+        private fun awaitChunk(result: Future<Unit>) {
+            try {
+                result.get()
+            } catch (ex: ExecutionException) {
+                throw ex.cause ?: ex
+            }
         }
 
-        if (parsedCentrality < IOHandlerData.MIN_CENTRALITY) {
-            handleInputError(lineNum, "centrality must be not less than ${IOHandlerData.MIN_CENTRALITY}")
+        private fun mergeLinks(chunk: LinksChunk) = with(chunk) {
+            for (i in 0 until linksNum) {
+                network.addLink(sources[i], targets[i])
+
+                addSkippedNodes(targets[i])
+                addSkippedNodes(sources[i])
+            }
+            lineNum += linesNum
         }
 
-        if (columns.size == NODE_COORDS_INPUT_COLUMNS_NUM) {
-            if (!columns[3].isDouble() || !columns[4].isDouble()) {
-                handleInputError(lineNum, "node coordinates must be decimals")
+        // Returns the id in the first column
+        private fun parseNode(reader: MappedLineReader): Int {
+            if (reader.columnsNum != NODE_SIMPLE_INPUT_COLUMNS_NUM && reader.columnsNum != NODE_COORDS_INPUT_COLUMNS_NUM) {
+                handleInputError(
+                    lineNum,
+                    "expected $NODE_SIMPLE_INPUT_COLUMNS_NUM or $NODE_COORDS_INPUT_COLUMNS_NUM columns but was ${reader.columnsNum}"
+                )
             }
 
-            parsedX = columns[3].toDouble()
-            parsedY = columns[4].toDouble()
-        }
+            val onWrongNumber = { handleInputError(lineNum, "node id and community must be integers, centrality must be decimal") }
+            val parsedId = reader.parseInt(0, onWrongNumber)
+            val parsedCommunity = reader.parseInt(1, onWrongNumber)
+            val parsedCentrality = reader.parseDouble(2, onWrongNumber)
+            var parsedX: Double? = null
+            var parsedY: Double? = null
+
+            if (parsedId < IOHandlerData.MIN_NODE_ID) {
+                handleInputError(lineNum, "node id must be not less than ${IOHandlerData.MIN_NODE_ID}")
+            }
+
+            if (parsedCommunity < IOHandlerData.MIN_COMMUNITY) {
+                handleInputError(lineNum, "community must be not less than ${IOHandlerData.MIN_COMMUNITY}")
+            }
 
-        network.addNode(parsedId).apply {
-            community = parsedCommunity
-            centrality = parsedCentrality
-            x = parsedX ?: x
-            y = parsedY ?: y
+            if (parsedCentrality < IOHandlerData.MIN_CENTRALITY) {
+                handleInputError(lineNum, "centrality must be not less than ${IOHandlerData.MIN_CENTRALITY}")
+            }
+
+            if (reader.columnsNum == NODE_COORDS_INPUT_COLUMNS_NUM) {
+                parsedX = reader.parseDouble(3) { handleInputError(lineNum, "node coordinates must be decimals") }
+                parsedY = reader.parseDouble(4) { handleInputError(lineNum, "node coordinates must be decimals") }
+            }
+
+            network.addNode(parsedId).apply {
+                community = parsedCommunity
+                centrality = parsedCentrality
+                x = parsedX ?: x
+                y = parsedY ?: y
+            }
+
+            return parsedId
         }
-    }
 
-    private fun addSkippedNodes(network: Network, addUntilId: Int) {
-        var prevId = addUntilId - 1
-        while (prevId >= IOHandlerData.MIN_NODE_ID && !network.nodes.containsKey(prevId)) network.addNode(prevId--)
+        private fun addSkippedNodes(addUntilId: Int) {
+            var prevId = addUntilId - 1
+            while (prevId >= presentIdsBound && !network.nodes.containsKey(prevId)) network.addNode(prevId--)
+            if (prevId < presentIdsBound) presentIdsBound = maxOf(presentIdsBound, addUntilId + 1)
+        }
     }
 
     private fun handleInputError(lineNum: Int, message: String): Nothing {
@@ -135,6 +225,18 @@ class TxtIOHandler : Controller(), FileIOHandler {
     }
 
     override fun exportNetwork(network: Network, file: File) {
+        exportNetwork(network, file, false)
+    }
+
+    /**
+     * Exports the network like [exportNetwork] but compresses the file with gzip. Gzipped files are recognized by
+     * [importNetwork], so they are imported back as is.
+     */
+    fun exportNetworkGzipped(network: Network, file: File) {
+        exportNetwork(network, file, true)
+    }
+
+    private fun exportNetwork(network: Network, file: File, isGzipped: Boolean) {
         try {
             Files.createDirectories(file.toPath().parent)
         } catch (ex: SecurityException) {
@@ -142,8 +244,8 @@ class TxtIOHandler : Controller(), FileIOHandler {
             throw HandledIOException("Parent dir ${file.toPath().parent} cannot be created: no read-write access", ex)
         }
 
-        val bufferedWriter = try {
-            file.bufferedWriter()
+        val outputStream = try {
+            FileOutputStream(file)
         } catch (ex: FileNotFoundException) {
             logger.error(ex) { "Output file ${file.path} cannot be opened or created" }
             throw HandledIOException("Output file cannot be opened or created", ex)
@@ -152,16 +254,114 @@ class TxtIOHandler : Controller(), FileIOHandler {
             throw HandledIOException("Output file cannot be written: no write access", ex)
         }
 
-        bufferedWriter.use { writer ->
-            for (link in network.links) with(link) {
-                writer.write("${n1.id}$COLUMN_DELIMITER${n2.id}\n")
+        val channel = if (isGzipped) Channels.newChannel(GZIPOutputStream(outputStream)) else outputStream.channel
+
+        BulkLineWriter(channel).use { writer ->
+            if (network is CompactUndirectedNetwork) writeCompactNetwork(network, writer) else writeNetwork(network, writer)
+        }
+    }
+
+    private fun writeNetwork(network: Network, writer: BulkLineWriter) {
+        for (link in network.links) writer.writeLink(link.n1.id, link.n2.id)
+
+        writer.writeAscii(System.lineSeparator())
+
+        for (entry in network.nodes) with(entry.value) { writer.writeNode(id, community, centrality, x, y) }
+    }
+
+    // Reads the columns of the network directly, without creating node and link views
+    private fun writeCompactNetwork(network: CompactUndirectedNetwork, writer: BulkLineWriter) = with(network) {
+        for (i in 0 until linksNum) writer.writeLink(getLinkSource(i), getLinkTarget(i))
+
+        writer.writeAscii(System.lineSeparator())
+
+        for (id in 0 until idBound) {
+            if (containsNode(id)) writer.writeNode(id, getCommunity(id), getCentrality(id), getX(id), getY(id))
+        }
+    }
+
+    private fun BulkLineWriter.writeLink(id1: Int, id2: Int) {
+        writeInt(id1)
+        writeByte(COLUMN_DELIMITER_BYTE)
+        writeInt(id2)
+        writeByte(LINE_END_BYTE)
+    }
+
+    private fun BulkLineWriter.writeNode(id: Int, community: Int, centrality: Double, x: Double, y: Double) {
+        writeInt(id)
+        writeByte(COLUMN_DELIMITER_BYTE)
+        writeInt(community)
+        writeByte(COLUMN_DELIMITER_BYTE)
+        writeDouble(centrality)
+        writeByte(COLUMN_DELIMITER_BYTE)
+        writeDouble(x)
+        writeByte(COLUMN_DELIMITER_BYTE)
+        writeDouble(y)
+        writeByte(LINE_END_BYTE)
+    }
+}
+
+
+/**
+ * Links parsed from the lines between [start] and [end] of a links block. Parsing stops after a blank line, which ends
+ * the block, or after an incorrect line. Repetitive and reversed links are only kept once.
+ */
+private class LinksChunk(private val channel: FileChannel, private val start: Long, private val end: Long) {
+    var linesNum = 0
+        private set
+    var linksNum = 0
+        private set
+    var sources = IntArray(INITIAL_LINKS_CAPACITY)
+        private set
+    var targets = IntArray(INITIAL_LINKS_CAPACITY)
+        private set
+
+    // The message about the incorrect last line
+    var errorMessage: String? = null
+        private set
+
+    // The position right after the blank line that ends the block
+    var blockEnd: Long? = null
+        private set
+
+    fun parse() {
+        val reader = MappedLineReader(channel, COLUMN_DELIMITER_BYTE, start, end)
+        val linkKeys = LinkKeySet(INITIAL_LINKS_CAPACITY)
+
+        while (reader.readLine()) {
+            linesNum++
+
+            if (reader.isLineEmpty) {
+                blockEnd = reader.filePosition
+                return
             }
 
-            writer.newLine()
+            if (reader.columnsNum != LINK_INPUT_COLUMNS_NUM) {
+                errorMessage = "expected $LINK_INPUT_COLUMNS_NUM columns but was ${reader.columnsNum}"
+                return
+            }
 
-            for (entry in network.nodes) with(entry.value) {
-                writer.write(listOf(id, community, centrality, x, y).joinToString(COLUMN_DELIMITER, postfix = "\n"))
+            val parsedId1 = reader.parseInt(0) { errorMessage = "node ids must be integers"; return }
+            val parsedId2 = reader.parseInt(1) { errorMessage = "node ids must be integers"; return }
+
+            if (parsedId1 < IOHandlerData.MIN_NODE_ID || parsedId2 < IOHandlerData.MIN_NODE_ID) {
+                errorMessage = "node ids must be not less than ${IOHandlerData.MIN_NODE_ID}"
+                return
+            }
+
+            if (linkKeys.add(LinkKeySet.keyOf(parsedId1, parsedId2))) {
+                if (linksNum == sources.size) {
+                    sources = sources.copyOf(2 * linksNum)
+                    targets = targets.copyOf(2 * linksNum)
+                }
+                sources[linksNum] = parsedId1
+                targets[linksNum] = parsedId2
+                linksNum++
             }
         }
     }
+
+    private companion object {
+        const val INITIAL_LINKS_CAPACITY = 1024
+    }
 }
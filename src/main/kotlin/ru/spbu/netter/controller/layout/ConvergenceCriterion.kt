@@ -0,0 +1,26 @@
+package ru.spbu.netter.controller.layout
+
+
+/**
+ * Decides when an iterative layout has converged: it is the case once the observed metric has been below the
+ * [threshold] for [loopsNum] consecutive iterations. A non-positive threshold disables the criterion.
+ */
+internal class ConvergenceCriterion(private val threshold: Double, private val loopsNum: Int) {
+    private var convergedLoopsNum = 0
+
+    init {
+        require(loopsNum > 0) { "Wrong convergence loops number: it must be positive but was $loopsNum" }
+    }
+
+    val isEnabled get() = threshold > 0
+
+    /**
+     * Takes the metric of the next iteration into account and returns whether the layout has converged.
+     */
+    fun update(metric: Double): Boolean {
+        if (!isEnabled) return false
+
+        convergedLoopsNum = if (metric < threshold) convergedLoopsNum + 1 else 0
+        return convergedLoopsNum >= loopsNum
+    }
+}
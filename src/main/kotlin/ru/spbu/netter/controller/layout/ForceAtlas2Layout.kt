@@ -1,21 +1,34 @@
 package ru.spbu.netter.controller.layout
 
 import mu.KotlinLogging
-import org.gephi.graph.api.Edge
-import org.gephi.graph.api.Graph
-import org.gephi.graph.api.Node
-import org.gephi.layout.plugin.forceAtlas2.ForceAtlas2
-import org.gephi.layout.plugin.forceAtlas2.ForceAtlas2LayoutData
+import org.gephi.layout.plugin.forceAtlas2.CompactForceAtlas2
+import ru.spbu.netter.controller.clustering.LeidenNetworkAdapter
+import ru.spbu.netter.model.CompactUndirectedNetwork
 import ru.spbu.netter.model.Network
+import ru.spbu.netter.model.Node
 import tornadofx.*
+import java.util.concurrent.ForkJoinPool
 
 
 private val logger = KotlinLogging.logger {}
 
+private const val NANOS_IN_MILLI = 1e6
+
+// Each finer level of a multilevel layout runs this share of the loops of the coarsest one
+private const val MULTILEVEL_REFINEMENT_LOOPS_SHARE = 0.2
+
+// More threads than processors only add contention, so larger threads numbers are reduced to this one
+val MAX_LAYOUT_THREADS_NUM = Runtime.getRuntime().availableProcessors()
+
 
 class ForceAtlas2Layout : Controller(), SmartLayoutMethod {
     override val status = TaskStatus()
 
+    // The pool of the last threads number is kept between layouts, its idle workers are stopped by the pool itself.
+    // A replaced pool is shut down as soon as no layout runs on it.
+    private var pool: ForkJoinPool? = null
+    private val runningLayoutsNums = mutableMapOf<ForkJoinPool, Int>()
+
     override fun applyLayout(
         network: Network,
         loopsNum: Int,
@@ -23,12 +36,22 @@ class ForceAtlas2Layout : Controller(), SmartLayoutMethod {
         applyBarnesHut: Boolean,
         applyLinLogMode: Boolean,
         applyStrongGravityMode: Boolean,
+        applyMultilevel: Boolean,
+        applyWarmStart: Boolean,
+        applyFloatRepulsion: Boolean,
         withJitterTolerance: Double,
         withScalingRatio: Double,
         withGravity: Double,
         withBarnesHutTheta: Double,
+        withThreadsNum: Int,
+        withConvergenceThreshold: Double,
+        withConvergenceLoopsNum: Int,
+        withPinnedNodeIds: Set<Int>,
         executeOnSuccess: () -> Unit,
     ) {
+        require(withThreadsNum > 0) { "Wrong threads number: it must be positive but was $withThreadsNum" }
+        val isConvergenceEnabled = ConvergenceCriterion(withConvergenceThreshold, withConvergenceLoopsNum).isEnabled
+
         if (network.isEmpty()) {
             logger.info { "There is nothing to lay out using ForceAtlas2: network $network is empty" }
             return
@@ -39,50 +62,121 @@ class ForceAtlas2Layout : Controller(), SmartLayoutMethod {
         logger.info { "-- barnesHutOptimize: $applyBarnesHut" }
         logger.info { "-- linLogMode: $applyLinLogMode" }
         logger.info { "-- strongGravityMode: $applyStrongGravityMode" }
+        logger.info { "-- multilevel: $applyMultilevel" }
+        logger.info { "-- warmStart: $applyWarmStart" }
+        logger.info { "-- floatRepulsion: $applyFloatRepulsion" }
+        logger.info { "-- pinnedNodesNum: ${withPinnedNodeIds.size}" }
+        val isIncremental = applyWarmStart || withPinnedNodeIds.isNotEmpty()
+        if (applyMultilevel && isIncremental) {
+            logger.info { "Multilevel mode is ignored: the current layout of the whole network is refined" }
+        }
         logger.info { "-- jitterTolerance: $withJitterTolerance" }
         logger.info { "-- scalingRatio: $withScalingRatio" }
         logger.info { "-- gravity: $withGravity" }
         logger.info { "-- barnesHutTheta: $withBarnesHutTheta" }
+        val threadsNum = withThreadsNum.coerceAtMost(MAX_LAYOUT_THREADS_NUM)
+        logger.info { "-- threadsNum: $threadsNum" }
+        if (isConvergenceEnabled) {
+            logger.info { "-- convergence: displacement per node below $withConvergenceThreshold for $withConvergenceLoopsNum loops" }
+        }
 
-        val convertedNetwork = convertNetwork(network)
-
-        val forceAtlas2Algorithm = ForceAtlas2().apply {
-            setGraph(convertedNetwork)
-
+        val pool = acquirePool(threadsNum)
+        val configure: CompactForceAtlas2.() -> Unit = {
             isOutboundAttractionDistribution = false
             isAdjustSizes = applyAdjustSizes
             isBarnesHutOptimize = applyBarnesHut
             isLinLogMode = applyLinLogMode
             isStrongGravityMode = applyStrongGravityMode
+            isFloatRepulsion = applyFloatRepulsion
 
             edgeWeightInfluence = 1.0
             jitterTolerance = withJitterTolerance
             scalingRatio = withScalingRatio
             gravity = withGravity
             barnesHutTheta = withBarnesHutTheta
+            setPool(pool)
+        }
+        val forceAtlas2Algorithm = convertNetwork(network).apply(configure)
+        if (isIncremental) {
+            getCurrentCoordinates(network, applyWarmStart, withPinnedNodeIds).let { (x, y) ->
+                forceAtlas2Algorithm.setInitialCoordinates(x, y)
+            }
+            for (id in withPinnedNodeIds) forceAtlas2Algorithm.setFixed(id, true)
         }
 
         runAsync(true, status) {
-            updateMessage("ForceAtlas2 layout")
+            try {
+                updateMessage("ForceAtlas2 layout")
+
+                val statistics = LayoutStatistics()
 
-            with(forceAtlas2Algorithm) {
-                initAlgo()
-                loopsNum.toLong().let {
-                    for (i in 1..it) {
-                        updateProgress(i, it)
+                // Runs the layout until it converges or the loops are over
+                fun CompactForceAtlas2.runLoops(loopsNum: Int, doneLoopsNum: Int, totalLoopsNum: Int, levelName: String) {
+                    val convergenceCriterion = ConvergenceCriterion(withConvergenceThreshold, withConvergenceLoopsNum)
+
+                    initAlgo()
+                    var levelLoopsNum = 0
+                    while (levelLoopsNum < loopsNum) {
                         goAlgo()
+                        levelLoopsNum++
+
+                        updateProgress((doneLoopsNum + levelLoopsNum).toLong(), totalLoopsNum.toLong())
+                        updateMessage("ForceAtlas2 layout$levelName: displacement per node %.4g".format(displacementPerNode))
+                        if (convergenceCriterion.update(displacementPerNode)) break
                     }
+                    endAlgo()
+
+                    statistics.add(this, levelLoopsNum, loopsNum)
                 }
-                endAlgo()
-            }
-        } success {
-            with(convertedNetwork.nodes) {
-                network.nodes.values.withEach {
-                    get(id).let { resultingNode ->
-                        x = resultingNode.x
-                        y = resultingNode.y
+
+                if (applyMultilevel && !isIncremental) {
+                    val coarsening = MultilevelCoarsening(LeidenNetworkAdapter.convert(network), forceAtlas2Algorithm.degreeMasses)
+                    val levelsNum = coarsening.levelsNum
+                    val refinementLoopsNum = (loopsNum * MULTILEVEL_REFINEMENT_LOOPS_SHARE).toInt().coerceAtLeast(1)
+                    val totalLoopsNum = loopsNum + (levelsNum - 1) * refinementLoopsNum
+                    logger.info { "Coarsened the network into $levelsNum levels of ${coarsening.networks.map { it.nNodes }} nodes" }
+
+                    var x: DoubleArray? = null
+                    var y: DoubleArray? = null
+                    var doneLoopsNum = 0
+                    for (level in levelsNum - 1 downTo 0) {
+                        val levelAlgorithm = if (level == 0) forceAtlas2Algorithm else coarsening.createLayout(level).apply(configure)
+                        if (x != null && y != null) {
+                            coarsening.interpolate(level, x, y).let { (levelX, levelY) ->
+                                levelAlgorithm.setInitialCoordinates(levelX, levelY)
+                            }
+                        }
+
+                        val levelLoopsNum = if (level == levelsNum - 1) loopsNum else refinementLoopsNum
+                        levelAlgorithm.runLoops(levelLoopsNum, doneLoopsNum, totalLoopsNum, " (level ${level + 1} of $levelsNum)")
+                        doneLoopsNum += levelLoopsNum
+
+                        x = DoubleArray(levelAlgorithm.nodesNum) { levelAlgorithm.getX(it) }
+                        y = DoubleArray(levelAlgorithm.nodesNum) { levelAlgorithm.getY(it) }
                     }
+                } else {
+                    forceAtlas2Algorithm.runLoops(loopsNum, 0, loopsNum, "")
                 }
+
+                statistics
+            } finally {
+                releasePool(pool)
+            }
+        } success { statistics ->
+            network.nodes.values.withEach {
+                x = forceAtlas2Algorithm.getX(id)
+                y = forceAtlas2Algorithm.getY(id)
+            }
+
+            if (statistics.isConverged) {
+                logger.info { "ForceAtlas2 has converged after ${statistics.doneLoopsNum} of ${statistics.loopsNum} loops" }
+            }
+            logger.info {
+                "ForceAtlas2 spent %.2f ms on building Barnes-Hut trees, %.2f ms on repulsion and %.2f ms on attraction".format(
+                    statistics.treeBuildNanos / NANOS_IN_MILLI,
+                    statistics.repulsionNanos / NANOS_IN_MILLI,
+                    statistics.attractionNanos / NANOS_IN_MILLI,
+                )
             }
 
             logger.info { "Placing nodes using ForceAtlas2 has been finished" }
@@ -93,9 +187,84 @@ class ForceAtlas2Layout : Controller(), SmartLayoutMethod {
         }
     }
 
-    private fun convertNetwork(network: Network): Graph {
-        val nodes = network.nodes.values.map { Node(it.id, ForceAtlas2LayoutData()) }
-        val edges = network.links.map { Edge(nodes[it.n1.id], nodes[it.n2.id]) }
-        return Graph(nodes, edges)
+    private fun acquirePool(threadsNum: Int): ForkJoinPool = synchronized(runningLayoutsNums) {
+        val lastPool = pool
+        val acquiredPool = if (lastPool != null && lastPool.parallelism == threadsNum) lastPool else {
+            if (lastPool != null && lastPool !in runningLayoutsNums) lastPool.shutdown()
+            ForkJoinPool(threadsNum).also { pool = it }
+        }
+        runningLayoutsNums[acquiredPool] = (runningLayoutsNums[acquiredPool] ?: 0) + 1
+        acquiredPool
+    }
+
+    private fun releasePool(releasedPool: ForkJoinPool) = synchronized(runningLayoutsNums) {
+        val runningLayoutsNum = runningLayoutsNums.getValue(releasedPool) - 1
+        if (runningLayoutsNum > 0) {
+            runningLayoutsNums[releasedPool] = runningLayoutsNum
+        } else {
+            runningLayoutsNums.remove(releasedPool)
+            if (releasedPool !== pool) releasedPool.shutdown()
+        }
+    }
+
+    // Totals of the layouts of all levels
+    private class LayoutStatistics {
+        var doneLoopsNum = 0
+        var loopsNum = 0
+        var treeBuildNanos = 0L
+        var repulsionNanos = 0L
+        var attractionNanos = 0L
+
+        val isConverged get() = doneLoopsNum < loopsNum
+
+        fun add(algorithm: CompactForceAtlas2, doneLoopsNum: Int, loopsNum: Int) {
+            this.doneLoopsNum += doneLoopsNum
+            this.loopsNum += loopsNum
+            treeBuildNanos += algorithm.treeBuildNanos
+            repulsionNanos += algorithm.repulsionNanos
+            attractionNanos += algorithm.attractionNanos
+        }
+    }
+
+    // Pinned nodes keep their coordinates. With a warm start, so do the other nodes that are not at the default
+    // position, which are considered not laid out yet. The coordinates of the rest are NaN to be placed randomly.
+    private fun getCurrentCoordinates(
+        network: Network,
+        applyWarmStart: Boolean,
+        pinnedNodeIds: Set<Int>,
+    ): Pair<DoubleArray, DoubleArray> {
+        val x = DoubleArray(network.nodes.size) { Double.NaN }
+        val y = DoubleArray(network.nodes.size) { Double.NaN }
+
+        network.nodes.values.withEach {
+            val isLaidOut = this.x != Node.DEFAULT_X || this.y != Node.DEFAULT_Y
+            if (id in pinnedNodeIds || applyWarmStart && isLaidOut) {
+                x[id] = this.x
+                y[id] = this.y
+            }
+        }
+
+        return x to y
+    }
+
+    // Nodes are identified by their ids, so the ids must be 0, ..., nodes.size - 1 like in imported networks
+    private fun convertNetwork(network: Network): CompactForceAtlas2 {
+        val linksNum = network.links.size
+        val sources = IntArray(linksNum)
+        val targets = IntArray(linksNum)
+
+        if (network is CompactUndirectedNetwork) {
+            for (i in 0 until linksNum) {
+                sources[i] = network.getLinkSource(i)
+                targets[i] = network.getLinkTarget(i)
+            }
+        } else {
+            network.links.forEachIndexed { i, link ->
+                sources[i] = link.n1.id
+                targets[i] = link.n2.id
+            }
+        }
+
+        return CompactForceAtlas2(network.nodes.size, sources, targets, DoubleArray(linksNum) { 1.0 })
     }
 }
@@ -22,10 +22,17 @@ interface SmartLayoutMethod : Statusable {
         applyBarnesHut: Boolean = true,
         applyLinLogMode: Boolean = false,
         applyStrongGravityMode: Boolean = false,
+        applyMultilevel: Boolean = false,
+        applyWarmStart: Boolean = false,
+        applyFloatRepulsion: Boolean = false,
         withJitterTolerance: Double = 1.0,
         withScalingRatio: Double = 10.0,
         withGravity: Double = 1.0,
         withBarnesHutTheta: Double = 1.2,
+        withThreadsNum: Int = Runtime.getRuntime().availableProcessors(),
+        withConvergenceThreshold: Double = 0.0,
+        withConvergenceLoopsNum: Int = 10,
+        withPinnedNodeIds: Set<Int> = emptySet(),
         executeOnSuccess: () -> Unit = {},
     )
 }
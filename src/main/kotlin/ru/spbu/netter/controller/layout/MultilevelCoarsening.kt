@@ -0,0 +1,150 @@
+package ru.spbu.netter.controller.layout
+
+import nl.cwts.networkanalysis.Clustering
+import nl.cwts.networkanalysis.Network as LeidenNetwork
+import org.gephi.layout.plugin.forceAtlas2.CompactForceAtlas2
+import kotlin.random.Random
+
+
+private const val DEFAULT_MIN_NODES_NUM = 1_000
+
+// Coarsening stops once a matching merges less than this share of the nodes, e.g. in star-like networks
+private const val MIN_MERGED_NODES_SHARE = 0.1
+
+// Nodes are placed around the position of their coarse node at most this far, so that they do not coincide
+private const val INTERPOLATION_JITTER = 1.0
+
+
+/**
+ * A hierarchy of coarser and coarser versions of a network for multilevel layouts.
+ *
+ * Each coarser network is the reduced network of a heavy edge matching of the previous one: every node is merged with
+ * at most one of its neighbors, preferring the neighbors to which it is linked the most relative to their weights.
+ * Coarsening stops once the network has at most [minNodesNum] nodes or the matching stops shrinking it.
+ *
+ * The layout masses of the nodes of the given network are [nodeMasses], e.g. the default ones of its layout, since the
+ * network does not tell which nodes have self-loops. The mass of a coarse node is the total mass of the merged nodes.
+ */
+internal class MultilevelCoarsening(
+    network: LeidenNetwork,
+    nodeMasses: DoubleArray,
+    minNodesNum: Int = DEFAULT_MIN_NODES_NUM,
+    seed: Long = 42,
+) {
+    private val random = Random(seed)
+
+    /**
+     * The networks from the given one to the coarsest one.
+     */
+    val networks: List<LeidenNetwork>
+
+    /**
+     * The layout masses of the nodes of each network.
+     */
+    val masses: List<DoubleArray>
+
+    // The clusters of the nodes of each network but the coarsest one, which are the nodes of the next network
+    private val clusters: List<IntArray>
+
+    init {
+        require(nodeMasses.size == network.nNodes) {
+            "Wrong masses number: expected ${network.nNodes} but was ${nodeMasses.size}"
+        }
+
+        val networks = mutableListOf(network)
+        val masses = mutableListOf(nodeMasses)
+        val clusters = mutableListOf<IntArray>()
+
+        var current = network
+        while (current.nNodes > minNodesNum) {
+            val matching = match(current)
+            val coarseNodesNum = matching.maxOrNull()?.plus(1) ?: 0
+            if (current.nNodes - coarseNodesNum < MIN_MERGED_NODES_SHARE * current.nNodes) break
+
+            val fineMasses = masses.last()
+            val coarseMasses = DoubleArray(coarseNodesNum)
+            for (node in matching.indices) coarseMasses[matching[node]] += fineMasses[node]
+
+            current = current.createReducedNetwork(Clustering(matching))
+            networks.add(current)
+            masses.add(coarseMasses)
+            clusters.add(matching)
+        }
+
+        this.networks = networks
+        this.masses = masses
+        this.clusters = clusters
+    }
+
+    val levelsNum get() = networks.size
+
+    /**
+     * Creates a layout of the network of the [level] with the edges weighted by the numbers of the merged links and
+     * the nodes weighted by their [masses].
+     */
+    fun createLayout(level: Int): CompactForceAtlas2 {
+        val network = networks[level]
+        val edges = network.edges
+
+        return CompactForceAtlas2(network.nNodes, edges[0], edges[1], network.edgeWeights).apply {
+            setInitialMasses(masses[level])
+        }
+    }
+
+    /**
+     * Places the nodes of the network of the [level] around the nodes of the next coarser network they are merged
+     * into, which are placed at [coarseX] and [coarseY].
+     */
+    fun interpolate(level: Int, coarseX: DoubleArray, coarseY: DoubleArray): Pair<DoubleArray, DoubleArray> {
+        val levelClusters = clusters[level]
+        val x = DoubleArray(levelClusters.size) {
+            coarseX[levelClusters[it]] + random.nextDouble(-INTERPOLATION_JITTER, INTERPOLATION_JITTER)
+        }
+        val y = DoubleArray(levelClusters.size) {
+            coarseY[levelClusters[it]] + random.nextDouble(-INTERPOLATION_JITTER, INTERPOLATION_JITTER)
+        }
+
+        return x to y
+    }
+
+    // Returns the cluster of each node, the clusters are numbered in the order of their first nodes
+    private fun match(network: LeidenNetwork): IntArray {
+        val nodesNum = network.nNodes
+        val nodeWeights = network.nodeWeights
+        val firstNeighborIndices = network.firstNeighborIndices
+        val neighbors = network.neighbors
+        val edgeWeights = network.neighborEdgeWeights
+        val mates = IntArray(nodesNum) { -1 }
+
+        val order = IntArray(nodesNum) { it }.apply { shuffle(random) }
+        for (node in order) {
+            if (mates[node] != -1) continue
+
+            var mate = node
+            var bestScore = 0.0
+            for (i in firstNeighborIndices[node] until firstNeighborIndices[node + 1]) {
+                val neighbor = neighbors[i]
+                if (mates[neighbor] != -1) continue
+
+                val score = edgeWeights[i] / (nodeWeights[node] * nodeWeights[neighbor])
+                if (score > bestScore) {
+                    mate = neighbor
+                    bestScore = score
+                }
+            }
+            mates[node] = mate
+            mates[mate] = node
+        }
+
+        val matching = IntArray(nodesNum) { -1 }
+        var clustersNum = 0
+        for (node in 0 until nodesNum) {
+            if (matching[node] == -1) {
+                matching[node] = clustersNum
+                matching[mates[node]] = clustersNum
+                clustersNum++
+            }
+        }
+        return matching
+    }
+}
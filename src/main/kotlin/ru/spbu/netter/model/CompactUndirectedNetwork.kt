@@ -0,0 +1,302 @@
+package ru.spbu.netter.model
+
+import javafx.beans.property.DoubleProperty
+import javafx.beans.property.IntegerProperty
+import javafx.beans.property.SimpleDoubleProperty
+import javafx.beans.property.SimpleIntegerProperty
+
+
+private const val DEFAULT_NODES_CAPACITY = 16
+private const val DEFAULT_LINKS_CAPACITY = 16
+
+
+/**
+ * An undirected network stored in primitive arrays.
+ *
+ * Node characteristics are kept in dense columns indexed by node id, links are kept as pairs of node ids. The
+ * adjacency is additionally available in the compressed sparse row (CSR) form: the neighbors of node `i` are
+ * `neighbors[firstNeighborIndices[i]], ..., neighbors[firstNeighborIndices[i + 1] - 1]` listed in increasing order.
+ * Self-loops are not included into the CSR adjacency, their number is given by [selfLoopsNum].
+ *
+ * [Node] and [Link] objects are lightweight views created on demand, JavaFX properties of a node are created only when
+ * requested and stay synchronized with the columns afterwards.
+ */
+class CompactUndirectedNetwork(
+    nodesCapacity: Int = DEFAULT_NODES_CAPACITY,
+    linksCapacity: Int = DEFAULT_LINKS_CAPACITY,
+) : Network {
+    private var isPresent = BooleanArray(nodesCapacity.coerceAtLeast(1))
+    private var communities = IntArray(isPresent.size) { Node.DEFAULT_COMMUNITY }
+    private var centralities = DoubleArray(isPresent.size) { Node.DEFAULT_CENTRALITY }
+    private var xs = DoubleArray(isPresent.size) { Node.DEFAULT_X }
+    private var ys = DoubleArray(isPresent.size) { Node.DEFAULT_Y }
+
+    var nodesNum = 0
+        private set
+
+    /**
+     * The number of node ids which the network columns and the CSR adjacency span: all node ids are less than it.
+     */
+    var idBound = 0
+        private set
+
+    private var linkSources = IntArray(linksCapacity.coerceAtLeast(1))
+    private var linkTargets = IntArray(linkSources.size)
+    private val linkKeys = LinkKeySet(linkSources.size)
+
+    var linksNum = 0
+        private set
+
+    private var csr: CsrAdjacency? = null
+
+    private val communityProperties = mutableMapOf<Int, IntegerProperty>()
+    private val centralityProperties = mutableMapOf<Int, DoubleProperty>()
+    private val xProperties = mutableMapOf<Int, DoubleProperty>()
+    private val yProperties = mutableMapOf<Int, DoubleProperty>()
+
+    override val nodes: Map<Int, Node> = NodesView()
+    override val links: Collection<Link> = LinksView()
+
+    /**
+     * CSR first neighbor indices of size [idBound] + 1. The returned array is shared and must not be modified.
+     */
+    val firstNeighborIndices: IntArray
+        get() = getCsr().firstNeighborIndices
+
+    /**
+     * CSR neighbors of size 2 * ([linksNum] - [selfLoopsNum]). The returned array is shared and must not be modified.
+     */
+    val neighbors: IntArray
+        get() = getCsr().neighbors
+
+    val selfLoopsNum: Int
+        get() = getCsr().selfLoopsNum
+
+    override fun addNode(id: Int): Node {
+        require(id >= 0) { "Wrong node id: id must be non-negative but was $id" }
+
+        if (id >= isPresent.size) growNodes(id + 1)
+        if (!isPresent[id]) {
+            isPresent[id] = true
+            nodesNum++
+            if (id >= idBound) idBound = id + 1
+            csr = null
+        }
+
+        return CompactNode(id)
+    }
+
+    override fun addLink(id1: Int, id2: Int): Link {
+        addNode(id1)
+        addNode(id2)
+
+        if (linkKeys.add(LinkKeySet.keyOf(id1, id2))) {
+            if (linksNum == linkSources.size) growLinks(linksNum + 1)
+            linkSources[linksNum] = id1
+            linkTargets[linksNum] = id2
+            linksNum++
+            csr = null
+        }
+
+        return CompactLink(id1, id2)
+    }
+
+    override fun isEmpty() = nodesNum == 0
+
+    fun containsNode(id: Int) = id in 0 until idBound && isPresent[id]
+
+    fun containsLink(id1: Int, id2: Int) = containsNode(id1) && containsNode(id2) && linkKeys.contains(LinkKeySet.keyOf(id1, id2))
+
+    fun getLinkSource(index: Int): Int {
+        checkLinkIndex(index)
+        return linkSources[index]
+    }
+
+    fun getLinkTarget(index: Int): Int {
+        checkLinkIndex(index)
+        return linkTargets[index]
+    }
+
+    fun getCommunity(id: Int): Int {
+        checkNodeId(id)
+        return communities[id]
+    }
+
+    fun setCommunity(id: Int, value: Int) {
+        checkNodeId(id)
+        communities[id] = value
+        communityProperties[id]?.set(value)
+    }
+
+    fun getCentrality(id: Int): Double {
+        checkNodeId(id)
+        return centralities[id]
+    }
+
+    fun setCentrality(id: Int, value: Double) {
+        checkNodeId(id)
+        centralities[id] = value
+        centralityProperties[id]?.set(value)
+    }
+
+    fun getX(id: Int): Double {
+        checkNodeId(id)
+        return xs[id]
+    }
+
+    fun setX(id: Int, value: Double) {
+        checkNodeId(id)
+        xs[id] = value
+        xProperties[id]?.set(value)
+    }
+
+    fun getY(id: Int): Double {
+        checkNodeId(id)
+        return ys[id]
+    }
+
+    fun setY(id: Int, value: Double) {
+        checkNodeId(id)
+        ys[id] = value
+        yProperties[id]?.set(value)
+    }
+
+    private fun checkNodeId(id: Int) {
+        if (!containsNode(id)) throw NoSuchElementException("Node $id not found in network $this")
+    }
+
+    private fun checkLinkIndex(index: Int) {
+        if (index !in 0 until linksNum) throw IndexOutOfBoundsException("Link index $index is out of 0..${linksNum - 1}")
+    }
+
+    private fun growNodes(minCapacity: Int) {
+        val oldCapacity = isPresent.size
+        val newCapacity = maxOf(minCapacity, oldCapacity * 2)
+
+        isPresent = isPresent.copyOf(newCapacity)
+        communities = communities.copyOf(newCapacity).apply { fill(Node.DEFAULT_COMMUNITY, oldCapacity) }
+        centralities = centralities.copyOf(newCapacity).apply { fill(Node.DEFAULT_CENTRALITY, oldCapacity) }
+        xs = xs.copyOf(newCapacity).apply { fill(Node.DEFAULT_X, oldCapacity) }
+        ys = ys.copyOf(newCapacity).apply { fill(Node.DEFAULT_Y, oldCapacity) }
+    }
+
+    private fun growLinks(minCapacity: Int) {
+        val newCapacity = maxOf(minCapacity, linkSources.size * 2)
+
+        linkSources = linkSources.copyOf(newCapacity)
+        linkTargets = linkTargets.copyOf(newCapacity)
+    }
+
+    private fun getCsr() = csr ?: CsrAdjacency.build(idBound, linkSources, linkTargets, linksNum).also { csr = it }
+
+    private inner class CompactNode(override val id: Int) : Node {
+        private val network get() = this@CompactUndirectedNetwork
+
+        override val communityProperty: IntegerProperty
+            get() = communityProperties.getOrPut(id) {
+                SimpleIntegerProperty(this, "community", communities[id]).apply {
+                    addListener { _, _, value -> communities[id] = value.toInt() }
+                }
+            }
+        override var community: Int
+            get() = getCommunity(id)
+            set(value) = setCommunity(id, value)
+
+        override val centralityProperty: DoubleProperty
+            get() = centralityProperties.getOrPut(id) {
+                SimpleDoubleProperty(this, "centrality", centralities[id]).apply {
+                    addListener { _, _, value -> centralities[id] = value.toDouble() }
+                }
+            }
+        override var centrality: Double
+            get() = getCentrality(id)
+            set(value) = setCentrality(id, value)
+
+        override val xProperty: DoubleProperty
+            get() = xProperties.getOrPut(id) {
+                SimpleDoubleProperty(this, "x", xs[id]).apply { addListener { _, _, value -> xs[id] = value.toDouble() } }
+            }
+        override var x: Double
+            get() = getX(id)
+            set(value) = setX(id, value)
+
+        override val yProperty: DoubleProperty
+            get() = yProperties.getOrPut(id) {
+                SimpleDoubleProperty(this, "y", ys[id]).apply { addListener { _, _, value -> ys[id] = value.toDouble() } }
+            }
+        override var y: Double
+            get() = getY(id)
+            set(value) = setY(id, value)
+
+        override fun equals(other: Any?) = other is CompactNode && network === other.network && id == other.id
+
+        override fun hashCode() = id
+
+        override fun toString() = "CompactNode(id=$id)"
+    }
+
+    private inner class CompactLink(val id1: Int, val id2: Int) : Link {
+        val network get() = this@CompactUndirectedNetwork
+
+        override val n1: Node get() = CompactNode(id1)
+        override val n2: Node get() = CompactNode(id2)
+
+        override fun equals(other: Any?) =
+            other is CompactLink && network === other.network &&
+                    (id1 == other.id1 && id2 == other.id2 || id1 == other.id2 && id2 == other.id1)
+
+        override fun hashCode() = id1 xor id2
+
+        override fun toString() = "CompactLink(n1=$id1, n2=$id2)"
+    }
+
+    private inner class NodesView : AbstractMap<Int, Node>() {
+        override val size get() = nodesNum
+
+        override fun containsKey(key: Int) = containsNode(key)
+
+        override fun get(key: Int): Node? = if (containsNode(key)) CompactNode(key) else null
+
+        override val entries: Set<Map.Entry<Int, Node>> = object : AbstractSet<Map.Entry<Int, Node>>() {
+            override val size get() = nodesNum
+
+            override fun iterator() = object : Iterator<Map.Entry<Int, Node>> {
+                private var nextId = findPresent(0)
+
+                override fun hasNext() = nextId < idBound
+
+                override fun next(): Map.Entry<Int, Node> {
+                    if (!hasNext()) throw NoSuchElementException()
+                    val id = nextId
+                    nextId = findPresent(id + 1)
+                    return java.util.AbstractMap.SimpleImmutableEntry(id, CompactNode(id))
+                }
+            }
+        }
+
+        private fun findPresent(fromId: Int): Int {
+            var id = fromId
+            while (id < idBound && !isPresent[id]) id++
+            return id
+        }
+    }
+
+    private inner class LinksView : AbstractCollection<Link>() {
+        override val size get() = linksNum
+
+        override fun contains(element: Link) =
+            element is CompactLink && element.network === this@CompactUndirectedNetwork &&
+                    containsLink(element.id1, element.id2)
+
+        override fun iterator() = object : Iterator<Link> {
+            private var index = 0
+
+            override fun hasNext() = index < linksNum
+
+            override fun next(): Link {
+                if (!hasNext()) throw NoSuchElementException()
+                return CompactLink(linkSources[index], linkTargets[index]).also { index++ }
+            }
+        }
+    }
+}
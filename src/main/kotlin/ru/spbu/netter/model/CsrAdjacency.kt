@@ -0,0 +1,99 @@
+package ru.spbu.netter.model
+
+
+/**
+ * Undirected adjacency in the compressed sparse row (CSR) form.
+ *
+ * The neighbors of node `i` are `neighbors[firstNeighborIndices[i]], ..., neighbors[firstNeighborIndices[i + 1] - 1]`
+ * listed in increasing order. Each link is stored in both directions, except for self-loops which are only counted.
+ */
+internal class CsrAdjacency(val firstNeighborIndices: IntArray, val neighbors: IntArray, val selfLoopsNum: Int) {
+    val idBound get() = firstNeighborIndices.size - 1
+
+    /**
+     * Returns the same adjacency over node ids less than [idBound], which must not be less than the current bound. The
+     * neighbors are shared.
+     */
+    fun withIdBound(idBound: Int): CsrAdjacency {
+        if (idBound == this.idBound) return this
+
+        val extendedFirstNeighborIndices = firstNeighborIndices.copyOf(idBound + 1)
+        extendedFirstNeighborIndices.fill(neighbors.size, this.idBound + 1)
+        return CsrAdjacency(extendedFirstNeighborIndices, neighbors, selfLoopsNum)
+    }
+
+    /**
+     * Returns the adjacency with the links `sources[i] - targets[i]` added in a linear time. The links must be over
+     * node ids less than [idBound] and must not be present in this adjacency.
+     */
+    fun withLinks(sources: IntArray, targets: IntArray): CsrAdjacency {
+        val added = build(idBound, sources, targets, sources.size)
+
+        val mergedFirstNeighborIndices = IntArray(idBound + 1)
+        for (id in 0 until idBound) {
+            mergedFirstNeighborIndices[id + 1] = mergedFirstNeighborIndices[id] +
+                    firstNeighborIndices[id + 1] - firstNeighborIndices[id] +
+                    added.firstNeighborIndices[id + 1] - added.firstNeighborIndices[id]
+        }
+
+        // Both neighbor lists of a node are sorted, so they are merged keeping the order
+        val mergedNeighbors = IntArray(mergedFirstNeighborIndices[idBound])
+        var k = 0
+        for (id in 0 until idBound) {
+            var i = firstNeighborIndices[id]
+            var j = added.firstNeighborIndices[id]
+            val iEnd = firstNeighborIndices[id + 1]
+            val jEnd = added.firstNeighborIndices[id + 1]
+            while (i < iEnd || j < jEnd) {
+                mergedNeighbors[k++] = if (j == jEnd || i < iEnd && neighbors[i] < added.neighbors[j]) {
+                    neighbors[i++]
+                } else added.neighbors[j++]
+            }
+        }
+
+        return CsrAdjacency(mergedFirstNeighborIndices, mergedNeighbors, selfLoopsNum + added.selfLoopsNum)
+    }
+
+    companion object {
+
+        /**
+         * Builds the adjacency of the first [linksNum] links `sources[i] - targets[i]` over node ids less than
+         * [idBound]. Links must not be repeated (in either direction).
+         */
+        fun build(idBound: Int, sources: IntArray, targets: IntArray, linksNum: Int): CsrAdjacency {
+            val firstNeighborIndices = IntArray(idBound + 1)
+            var selfLoopsNum = 0
+            for (i in 0 until linksNum) {
+                if (sources[i] == targets[i]) {
+                    selfLoopsNum++
+                } else {
+                    firstNeighborIndices[sources[i] + 1]++
+                    firstNeighborIndices[targets[i] + 1]++
+                }
+            }
+            for (i in 1..idBound) firstNeighborIndices[i] += firstNeighborIndices[i - 1]
+
+            // Scatter the links in their original order, then transpose to get the neighbors sorted in a linear time
+            val unsortedNeighbors = IntArray(firstNeighborIndices[idBound])
+            val positions = firstNeighborIndices.copyOf(idBound)
+            for (i in 0 until linksNum) {
+                val source = sources[i]
+                val target = targets[i]
+                if (source != target) {
+                    unsortedNeighbors[positions[source]++] = target
+                    unsortedNeighbors[positions[target]++] = source
+                }
+            }
+
+            val neighbors = IntArray(unsortedNeighbors.size)
+            firstNeighborIndices.copyInto(positions, endIndex = idBound)
+            for (id in 0 until idBound) {
+                for (k in firstNeighborIndices[id] until firstNeighborIndices[id + 1]) {
+                    neighbors[positions[unsortedNeighbors[k]]++] = id
+                }
+            }
+
+            return CsrAdjacency(firstNeighborIndices, neighbors, selfLoopsNum)
+        }
+    }
+}
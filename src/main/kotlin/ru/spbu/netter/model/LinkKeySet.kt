@@ -0,0 +1,66 @@
+package ru.spbu.netter.model
+
+
+private const val EMPTY_LINK_KEY = -1L
+
+
+/**
+ * An open-addressing hash set of undirected links, each link is packed into a [Long] key by [keyOf].
+ */
+internal class LinkKeySet(expectedSize: Int) {
+    private var keys = LongArray(tableSizeFor(expectedSize)).apply { fill(EMPTY_LINK_KEY) }
+    private var size = 0
+
+    fun contains(key: Long): Boolean {
+        var slot = slotOf(key, keys.size)
+        while (true) {
+            val current = keys[slot]
+            if (current == EMPTY_LINK_KEY) return false
+            if (current == key) return true
+            slot = (slot + 1) and (keys.size - 1)
+        }
+    }
+
+    fun add(key: Long): Boolean {
+        if (2 * (size + 1) > keys.size) rehash(keys.size * 2)
+        if (!insert(keys, key)) return false
+        size++
+        return true
+    }
+
+    private fun rehash(newTableSize: Int) {
+        val newKeys = LongArray(newTableSize).apply { fill(EMPTY_LINK_KEY) }
+        for (key in keys) if (key != EMPTY_LINK_KEY) insert(newKeys, key)
+        keys = newKeys
+    }
+
+    private fun insert(table: LongArray, key: Long): Boolean {
+        var slot = slotOf(key, table.size)
+        while (true) {
+            val current = table[slot]
+            if (current == key) return false
+            if (current == EMPTY_LINK_KEY) {
+                table[slot] = key
+                return true
+            }
+            slot = (slot + 1) and (table.size - 1)
+        }
+    }
+
+    private fun slotOf(key: Long, tableSize: Int): Int {
+        var hash = key * -7046029254386353131L
+        hash = hash xor (hash ushr 32)
+        return hash.toInt() and (tableSize - 1)
+    }
+
+    companion object {
+
+        /**
+         * Returns the key of the undirected link between the non-negative node ids [id1] and [id2].
+         */
+        fun keyOf(id1: Int, id2: Int) =
+            if (id1 <= id2) (id1.toLong() shl 32) or id2.toLong() else (id2.toLong() shl 32) or id1.toLong()
+
+        private fun tableSizeFor(expectedSize: Int) = Integer.highestOneBit((2 * expectedSize).coerceAtLeast(2) - 1) shl 1
+    }
+}
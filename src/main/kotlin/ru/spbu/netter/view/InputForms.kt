@@ -87,3 +87,30 @@ class ResolutionInputForm : Fragment("Resolution input") {
         }
     }
 }
+
+class MaxErrorInputForm : Fragment("Max error input") {
+    val maxError: StringProperty by param()
+
+    private lateinit var enteredMaxError: TextField
+
+    override val root = form {
+        fieldset {
+            field("Enter max error:") {
+                enteredMaxError = textfield("0.05")
+            }
+        }
+
+        buttonbar {
+            button("OK").setOnAction {
+                if (enteredMaxError.text.isDouble() && enteredMaxError.text.toDouble().let { it > 0 && it <= 1 }) {
+                    maxError.value = enteredMaxError.text
+                    close()
+                } else alert(
+                    Alert.AlertType.INFORMATION,
+                    "Wrong max error input",
+                    "Max error must be a decimal number greater than 0 and at most 1",
+                )
+            }
+        }
+    }
+}
@@ -6,6 +6,7 @@ import javafx.scene.control.Alert
 import javafx.scene.layout.Background
 import javafx.scene.layout.BackgroundFill
 import javafx.scene.paint.Color
+import ru.spbu.netter.controller.layout.MAX_LAYOUT_THREADS_NUM
 import tornadofx.*
 
 
@@ -19,10 +20,18 @@ class LeftMenu : View() {
     private val barnesHut = SimpleBooleanProperty(this, "barnesHut", true)
     private val linLog = SimpleBooleanProperty(this, "linLog", false)
     private val strongGravity = SimpleBooleanProperty(this, "strongGravity", false)
+    private val multilevel = SimpleBooleanProperty(this, "multilevel", false)
+    private val warmStart = SimpleBooleanProperty(this, "warmStart", false)
+    private val floatRepulsion = SimpleBooleanProperty(this, "floatRepulsion", false)
+    private val pinLaidOut = SimpleBooleanProperty(this, "pinLaidOut", false)
     private val jitterTolerance = SimpleStringProperty(this, "jitterTolerance", "1.0")
     private val scaling = SimpleStringProperty(this, "scaling", "10.0")
     private val gravity = SimpleStringProperty(this, "gravity", "1.0")
     private val barnesHutTheta = SimpleStringProperty(this, "barnesHutTheta", "1.2")
+    private val threadsNum =
+        SimpleStringProperty(this, "threadsNum", Runtime.getRuntime().availableProcessors().toString())
+    private val convergenceThreshold = SimpleStringProperty(this, "convergenceThreshold", "0.0")
+    private val convergenceLoopsNum = SimpleStringProperty(this, "convergenceLoopsNum", "10")
 
     override val root = form {
         background = Background(BackgroundFill(Color.WHITE, null, null))
@@ -55,6 +64,14 @@ class LeftMenu : View() {
 
             checkbox("Strong gravity mode", strongGravity)
 
+            checkbox("Multilevel mode", multilevel)
+
+            checkbox("Start from current layout", warmStart)
+
+            checkbox("Float repulsion", floatRepulsion)
+
+            checkbox("Pin laid out nodes", pinLaidOut)
+
             field("Jitter tolerance") { textfield(jitterTolerance) }
 
             field("Scaling ratio") { textfield(scaling) }
@@ -63,6 +80,12 @@ class LeftMenu : View() {
 
             field("Barnes-Hut theta") { textfield(barnesHutTheta) }
 
+            field("Threads number") { textfield(threadsNum) }
+
+            field("Convergence threshold") { textfield(convergenceThreshold) }
+
+            field("Convergence loops number") { textfield(convergenceLoopsNum) }
+
             buttonbar {
                 button("Start").setOnAction {
                     when {
@@ -91,16 +114,38 @@ class LeftMenu : View() {
                             "Wrong Barnes-Hut theta input",
                             "Barnes-Hut theta must be a decimal number",
                         )
+                        !threadsNum.value.isInt() || threadsNum.value.toInt() !in 1..MAX_LAYOUT_THREADS_NUM -> alert(
+                            Alert.AlertType.INFORMATION,
+                            "Wrong threads number input",
+                            "Threads number must be an integer from 1 to $MAX_LAYOUT_THREADS_NUM",
+                        )
+                        !convergenceThreshold.value.isDouble() || convergenceThreshold.value.toDouble() < 0 -> alert(
+                            Alert.AlertType.INFORMATION,
+                            "Wrong convergence threshold input",
+                            "Convergence threshold must be a non-negative decimal number, 0 disables early stopping",
+                        )
+                        !convergenceLoopsNum.value.isInt() || convergenceLoopsNum.value.toInt() <= 0 -> alert(
+                            Alert.AlertType.INFORMATION,
+                            "Wrong convergence loops number input",
+                            "Convergence loops number must be a positive integer",
+                        )
                         else -> navigationSpace.applySmartLayout(
                             loopsNum.value.toInt(),
                             adjustSizes.value,
                             barnesHut.value,
                             linLog.value,
                             strongGravity.value,
+                            multilevel.value,
+                            warmStart.value,
+                            floatRepulsion.value,
                             jitterTolerance.value.toDouble(),
                             scaling.value.toDouble(),
                             gravity.value.toDouble(),
                             barnesHutTheta.value.toDouble(),
+                            threadsNum.value.toInt(),
+                            convergenceThreshold.value.toDouble(),
+                            convergenceLoopsNum.value.toInt(),
+                            pinLaidOut.value,
                         )
                     }
                 }
@@ -5,14 +5,15 @@ import javafx.scene.control.Alert
 import ru.spbu.netter.controller.io.*
 import ru.spbu.netter.model.*
 import tornadofx.*
+import java.io.File
 
 
 class MainWindow : View("Netter") {
     private val navigationSpace: NavigationSpace by inject()
 
-    private val txtIOHandler: FileIOHandler by inject<TxtIOHandler>()
+    private val txtIOHandler: TxtIOHandler by inject()
     private val neo4jIOHandler: UriIOHandler by inject<Neo4jIOHandler>()
-    private val sqliteIHandler: FileIOHandler by inject<SQLiteIOHandler>()
+    private val sqliteIHandler: SQLiteIOHandler by inject()
 
     override val root = borderpane {
         setPrefSize(960.0, 540.0)
@@ -34,9 +35,15 @@ class MainWindow : View("Netter") {
 
                     item("As plain text").action { exportFromFile(txtIOHandler) }
 
+                    item("As gzipped plain text").action { exportFromFile(txtIOHandler::exportNetworkGzipped) }
+
                     item("As Neo4j database").action { exportFromUri(neo4jIOHandler) }
 
                     item("As SQLite database").action { exportFromFile(sqliteIHandler) }
+
+                    item("As SQLite database, unsafe but faster").action {
+                        exportFromFile(sqliteIHandler::exportNetworkHighThroughput)
+                    }
                 }
             }
 
@@ -50,6 +57,10 @@ class MainWindow : View("Netter") {
                 item("Inspect for centrality").action {
                     navigationSpace.inspectForCentrality()
                 }
+
+                item("Inspect for approximate centrality").action {
+                    getMaxError()?.let { navigationSpace.inspectForCentrality(it) }
+                }
             }
 
             menu("Help") {
@@ -88,6 +99,16 @@ class MainWindow : View("Netter") {
         }
     }
 
+    private fun getMaxError(): Double? {
+        with(SimpleStringProperty()) {
+            find<MaxErrorInputForm>(mapOf(MaxErrorInputForm::maxError to this)).openModal(
+                block = true,
+                resizable = false,
+            )
+            return value?.toDoubleOrNull()
+        }
+    }
+
     // IO using a file
 
     private fun importFromFile(fileIOHandler: FileIOHandler) {
@@ -98,7 +119,7 @@ class MainWindow : View("Netter") {
             return
         }
 
-        val network: Network = UndirectedNetwork()
+        val network: Network = CompactUndirectedNetwork()
         try {
             fileIOHandler.importNetwork(network, file)
         } catch (ex: HandledIOException) {
@@ -109,7 +130,9 @@ class MainWindow : View("Netter") {
         navigationSpace.initNetworkView(network)
     }
 
-    private fun exportFromFile(fileIOHandler: FileIOHandler) {
+    private fun exportFromFile(fileIOHandler: FileIOHandler) = exportFromFile(fileIOHandler::exportNetwork)
+
+    private fun exportFromFile(exportNetwork: (Network, File) -> Unit) {
         val file = chooseFile("Select a file for export...", emptyArray(), mode = FileChooserMode.Single).firstOrNull()
 
         if (file == null) {
@@ -118,7 +141,7 @@ class MainWindow : View("Netter") {
         }
 
         try {
-            fileIOHandler.exportNetwork(navigationSpace.networkView.network, file)
+            exportNetwork(navigationSpace.networkView.network, file)
         } catch (ex: HandledIOException) {
             alert(Alert.AlertType.ERROR, "Network export failed", ex.localizedMessage)
         }
@@ -138,7 +161,7 @@ class MainWindow : View("Netter") {
             return
         }
 
-        val network: Network = UndirectedNetwork()
+        val network: Network = CompactUndirectedNetwork()
         try {
             uriIOHandler.importNetwork(network, uri, username, password)
         } catch (ex: HandledIOException) {
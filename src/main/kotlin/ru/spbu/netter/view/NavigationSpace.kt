@@ -10,6 +10,7 @@ import ru.spbu.netter.controller.centrality.*
 import ru.spbu.netter.controller.clustering.*
 import ru.spbu.netter.controller.layout.*
 import ru.spbu.netter.model.Network
+import ru.spbu.netter.model.Node
 import tornadofx.*
 
 
@@ -74,10 +75,17 @@ class NavigationSpace : View() {
         applyBarnesHut: Boolean,
         applyLinLogMode: Boolean,
         applyStrongGravityMode: Boolean,
+        applyMultilevel: Boolean,
+        applyWarmStart: Boolean,
+        applyFloatRepulsion: Boolean,
         withJitterTolerance: Double,
         withScalingRatio: Double,
         withGravity: Double,
         withBarnesHutTheta: Double,
+        withThreadsNum: Int,
+        withConvergenceThreshold: Double,
+        withConvergenceLoopsNum: Int,
+        pinLaidOutNodes: Boolean,
     ) {
         smartLayout.applyLayout(
             networkView.network,
@@ -86,10 +94,17 @@ class NavigationSpace : View() {
             applyBarnesHut,
             applyLinLogMode,
             applyStrongGravityMode,
+            applyMultilevel,
+            applyWarmStart,
+            applyFloatRepulsion,
             withJitterTolerance,
             withScalingRatio,
             withGravity,
             withBarnesHutTheta,
+            withThreadsNum,
+            withConvergenceThreshold,
+            withConvergenceLoopsNum,
+            if (pinLaidOutNodes) getLaidOutNodeIds() else emptySet(),
         )
     }
 
@@ -97,10 +112,15 @@ class NavigationSpace : View() {
         communityDetector.detectCommunities(networkView.network, resolution) { networkView.updateColorsNum() }
     }
 
-    fun inspectForCentrality() {
-        centralityIdentifier.identifyCentrality(networkView.network) { networkView.updateNodeOrder() }
+    fun inspectForCentrality(maxError: Double = 0.0) {
+        centralityIdentifier.identifyCentrality(networkView.network, maxError) { networkView.updateNodeOrder() }
     }
 
+    // Nodes at the default position have not been laid out yet
+    private fun getLaidOutNodeIds() = networkView.network.nodes.values
+        .filter { it.x != Node.DEFAULT_X || it.y != Node.DEFAULT_Y }
+        .mapTo(mutableSetOf()) { it.id }
+
     private fun replaceNetworkView(newNetworkView: NetworkView) {
         root.children.retainAll { it is VBox }
         root.children.add(0, newNetworkView.apply {
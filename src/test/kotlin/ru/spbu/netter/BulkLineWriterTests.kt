@@ -0,0 +1,89 @@
+package ru.spbu.netter
+
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.params.ParameterizedTest
+import org.junit.jupiter.params.provider.ValueSource
+import ru.spbu.netter.controller.io.BulkLineWriter
+import ru.spbu.netter.controller.io.TxtIOHandler
+import ru.spbu.netter.model.CompactUndirectedNetwork
+import ru.spbu.netter.model.UndirectedNetwork
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.nio.channels.Channels
+import java.util.zip.GZIPInputStream
+
+
+internal class BulkLineWriterTests {
+
+    companion object {
+        private val OUTPUT_FILE = File("build/test-outputs/bulk-line-writer-test.txt")
+        private val GZIPPED_OUTPUT_FILE = File("build/test-outputs/bulk-line-writer-test.txt.gz")
+
+        private val INTS = listOf(0, 1, -1, 9, 10, -10, 123456789, Int.MAX_VALUE, Int.MIN_VALUE)
+
+        private val DOUBLES = listOf(
+            0.0, -0.0, 1.0, -1.0, 0.5, 0.1, 0.30000000000000004, 123.0, 9999999.0, 1e7, -1e7, 1e-3, 1e-4, 1.5e300,
+            4.9e-324, Double.MAX_VALUE, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, -273.15,
+        )
+    }
+
+    @ParameterizedTest(name = "{displayName} <-- buffer of {arguments} bytes")
+    @ValueSource(ints = [1, 40, 1024])
+    fun `write - numbers are written the same way as by toString`(bufferSize: Int) {
+        val output = ByteArrayOutputStream()
+        BulkLineWriter(Channels.newChannel(output), bufferSize).use { writer ->
+            for (value in INTS) {
+                writer.writeInt(value)
+                writer.writeByte('\n'.code.toByte())
+            }
+            for (value in DOUBLES) {
+                writer.writeDouble(value)
+                writer.writeAscii("\n")
+            }
+        }
+
+        assertEquals((INTS + DOUBLES).joinToString("\n", postfix = "\n"), output.toString(Charsets.US_ASCII))
+    }
+
+    @Test
+    fun `export - compact and object networks are exported to the same lines`() {
+        val compactNetwork = CompactUndirectedNetwork().withRandomLinks(100, 300)
+        val network = UndirectedNetwork().withRandomLinks(100, 300)
+        for (id in 0 until 100) {
+            network.nodes.getValue(id).x = id / 7.0
+            compactNetwork.setX(id, id / 7.0)
+        }
+
+        TxtIOHandler().exportNetwork(network, OUTPUT_FILE)
+        val expected = OUTPUT_FILE.readLines().sorted()
+        TxtIOHandler().exportNetwork(compactNetwork, OUTPUT_FILE)
+
+        assertIterableEquals(expected, OUTPUT_FILE.readLines().sorted())
+    }
+
+    @Test
+    fun `export gzipped - decompressed output is the same as uncompressed`() {
+        val network = CompactUndirectedNetwork().withRandomLinks(1_000, 5_000)
+
+        TxtIOHandler().exportNetwork(network, OUTPUT_FILE)
+        TxtIOHandler().exportNetworkGzipped(network, GZIPPED_OUTPUT_FILE)
+
+        assertArrayEquals(OUTPUT_FILE.readBytes(), GZIPInputStream(GZIPPED_OUTPUT_FILE.inputStream()).use { it.readBytes() })
+    }
+
+    @Test
+    fun `import gzipped - the network is the same as the exported one`() {
+        val network = CompactUndirectedNetwork().withRandomLinks(1_000, 5_000)
+        for (id in 0 until 1_000) network.setX(id, id / 7.0)
+
+        TxtIOHandler().exportNetworkGzipped(network, GZIPPED_OUTPUT_FILE)
+        val actual = CompactUndirectedNetwork().also { TxtIOHandler().importNetwork(it, GZIPPED_OUTPUT_FILE) }
+
+        TxtIOHandler().exportNetwork(network, OUTPUT_FILE)
+        val expected = OUTPUT_FILE.readLines().sorted()
+        TxtIOHandler().exportNetwork(actual, OUTPUT_FILE)
+
+        assertIterableEquals(expected, OUTPUT_FILE.readLines().sorted())
+    }
+}
@@ -0,0 +1,241 @@
+package ru.spbu.netter
+
+import org.gephi.graph.api.Edge
+import org.gephi.graph.api.Graph
+import org.gephi.graph.api.Node
+import org.gephi.layout.plugin.forceAtlas2.CompactForceAtlas2
+import org.gephi.layout.plugin.forceAtlas2.ForceAtlas2
+import org.gephi.layout.plugin.forceAtlas2.ForceAtlas2LayoutData
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.TestInstance
+import org.junit.jupiter.api.TestInstance.Lifecycle
+import org.junit.jupiter.api.extension.ExtensionContext
+import org.junit.jupiter.params.ParameterizedTest
+import org.junit.jupiter.params.provider.Arguments
+import org.junit.jupiter.params.provider.ArgumentsProvider
+import org.junit.jupiter.params.provider.ArgumentsSource
+import org.junit.jupiter.params.provider.ValueSource
+import ru.spbu.netter.model.*
+import java.util.concurrent.ForkJoinPool
+import kotlin.math.abs
+import kotlin.streams.asStream
+
+
+@TestInstance(Lifecycle.PER_CLASS)
+internal class CompactForceAtlas2Tests {
+    companion object {
+        private const val LOOPS_NUM = 20
+        private const val FLOAT_LOOPS_NUM = 5
+        private const val FLOAT_RELATIVE_TOLERANCE = 1e-3
+        private const val SEED = 42L
+
+        private const val COORDINATE_TOLERANCE = 1e-3
+
+        private val LAYOUT_INPUT_NAMES = listOf("karate-club.txt", "self-looped-links.txt", RANDOM_INPUT_NAME)
+
+        // Barnes Hut, adjust sizes, LinLog, strong gravity, outbound attraction distribution
+        private val MODES = listOf(
+            listOf(false, false, false, false, false),
+            listOf(true, false, false, false, false),
+            listOf(true, true, false, false, false),
+            listOf(true, false, true, false, true),
+            listOf(false, true, true, true, false),
+            listOf(true, true, true, true, true),
+        )
+
+        object InputsProvider : ArgumentsProvider {
+            override fun provideArguments(context: ExtensionContext?) =
+                LAYOUT_INPUT_NAMES.flatMap { name -> MODES.map { Arguments.of(name, *it.toTypedArray()) } }
+                    .asSequence().asStream()
+        }
+    }
+
+    @ParameterizedTest(name = PARAMETERIZED_TEST_NAME)
+    @ArgumentsSource(InputsProvider::class)
+    fun `go - the layout is the same as the one of ForceAtlas2`(
+        inputName: String,
+        applyBarnesHut: Boolean,
+        applyAdjustSizes: Boolean,
+        applyLinLogMode: Boolean,
+        applyStrongGravityMode: Boolean,
+        applyOutboundAttractionDistribution: Boolean,
+    ) {
+        val network = CompactUndirectedNetwork().withInput(inputName)
+        val sources = IntArray(network.linksNum) { network.getLinkSource(it) }
+        val targets = IntArray(network.linksNum) { network.getLinkTarget(it) }
+
+        val nodes = List(network.nodesNum) { Node(it, ForceAtlas2LayoutData()) }
+        val expected = ForceAtlas2().apply {
+            setGraph(Graph(nodes, sources.indices.map { Edge(nodes[sources[it]], nodes[targets[it]]) }))
+            setSeed(SEED)
+            threadsCount = 1
+            isBarnesHutOptimize = applyBarnesHut
+            isAdjustSizes = applyAdjustSizes
+            isLinLogMode = applyLinLogMode
+            isStrongGravityMode = applyStrongGravityMode
+            isOutboundAttractionDistribution = applyOutboundAttractionDistribution
+        }
+        val actual = CompactForceAtlas2(network.nodesNum, sources, targets, DoubleArray(sources.size) { 1.0 }).apply {
+            setSeed(SEED)
+            threadsCount = 1
+            isBarnesHutOptimize = applyBarnesHut
+            isAdjustSizes = applyAdjustSizes
+            isLinLogMode = applyLinLogMode
+            isStrongGravityMode = applyStrongGravityMode
+            isOutboundAttractionDistribution = applyOutboundAttractionDistribution
+        }
+
+        expected.initAlgo()
+        actual.initAlgo()
+        repeat(LOOPS_NUM) {
+            expected.goAlgo()
+            actual.goAlgo()
+        }
+        expected.endAlgo()
+        actual.endAlgo()
+
+        assertArrayEquals(DoubleArray(nodes.size) { nodes[it].x }, DoubleArray(nodes.size) { actual.getX(it) })
+        assertArrayEquals(DoubleArray(nodes.size) { nodes[it].y }, DoubleArray(nodes.size) { actual.getY(it) })
+    }
+
+    private fun runLayout(network: CompactUndirectedNetwork, threadsNum: Int, applyBarnesHut: Boolean, loopsNum: Int) =
+        CompactForceAtlas2(
+            network.nodesNum,
+            IntArray(network.linksNum) { network.getLinkSource(it) },
+            IntArray(network.linksNum) { network.getLinkTarget(it) },
+            DoubleArray(network.linksNum) { 1.0 },
+        ).apply {
+            setSeed(SEED)
+            threadsCount = threadsNum
+            isBarnesHutOptimize = applyBarnesHut
+            initAlgo()
+            repeat(loopsNum) { goAlgo() }
+            endAlgo()
+        }
+
+    @Test
+    fun `go - the exact multi-threaded layout is the same as the single-threaded one up to rounding`() {
+        val network = CompactUndirectedNetwork().withInput(RANDOM_INPUT_NAME)
+
+        val expected = runLayout(network, 1, false, 1)
+        val actual = runLayout(network, 4, false, 1)
+
+        for (n in 0 until network.nodesNum) {
+            assertEquals(expected.getX(n), actual.getX(n), COORDINATE_TOLERANCE)
+            assertEquals(expected.getY(n), actual.getY(n), COORDINATE_TOLERANCE)
+        }
+    }
+
+    @ParameterizedTest(name = "{displayName} <-- Barnes-Hut: {arguments}")
+    @ValueSource(booleans = [false, true])
+    fun `go - the multi-threaded layout does not depend on the number of threads`(applyBarnesHut: Boolean) {
+        val network = CompactUndirectedNetwork().withInput(RANDOM_INPUT_NAME)
+
+        val expected = runLayout(network, 2, applyBarnesHut, LOOPS_NUM)
+        val actual = runLayout(network, 4, applyBarnesHut, LOOPS_NUM)
+
+        assertArrayEquals(DoubleArray(network.nodesNum) { expected.getX(it) }, DoubleArray(network.nodesNum) { actual.getX(it) })
+        assertArrayEquals(DoubleArray(network.nodesNum) { expected.getY(it) }, DoubleArray(network.nodesNum) { actual.getY(it) })
+    }
+
+    @Test
+    fun `end - a shared pool is not shut down and is reused by the next layouts`() {
+        val network = CompactUndirectedNetwork().withInput(RANDOM_INPUT_NAME)
+        val sources = IntArray(network.linksNum) { network.getLinkSource(it) }
+        val targets = IntArray(network.linksNum) { network.getLinkTarget(it) }
+        val pool = ForkJoinPool(4)
+
+        repeat(2) {
+            CompactForceAtlas2(network.nodesNum, sources, targets, DoubleArray(sources.size) { 1.0 }).apply {
+                setPool(pool)
+                initAlgo()
+                repeat(LOOPS_NUM) { goAlgo() }
+                endAlgo()
+
+                assertTrue((0 until network.nodesNum).all { getX(it).isFinite() && getY(it).isFinite() })
+            }
+        }
+
+        assertFalse(pool.isShutdown)
+        pool.shutdown()
+    }
+
+    @Test
+    fun `init - nodes start from their initial coordinates and the others are placed as without them`() {
+        val network = CompactUndirectedNetwork().withInput("karate-club.txt")
+        val sources = IntArray(network.linksNum) { network.getLinkSource(it) }
+        val targets = IntArray(network.linksNum) { network.getLinkTarget(it) }
+        val initialX = DoubleArray(network.nodesNum) { if (it % 2 == 0) it.toDouble() else Double.NaN }
+        val initialY = DoubleArray(network.nodesNum) { if (it % 2 == 0) -it.toDouble() else Double.NaN }
+
+        val (random, warm) = listOf(false, true).map { isWarm ->
+            CompactForceAtlas2(network.nodesNum, sources, targets, DoubleArray(sources.size) { 1.0 }).apply {
+                setSeed(SEED)
+                if (isWarm) setInitialCoordinates(initialX, initialY)
+                initAlgo()
+                endAlgo()
+            }
+        }
+
+        for (n in 0 until network.nodesNum) {
+            assertEquals(if (n % 2 == 0) initialX[n] else random.getX(n), warm.getX(n))
+            assertEquals(if (n % 2 == 0) initialY[n] else random.getY(n), warm.getY(n))
+        }
+    }
+
+    @ParameterizedTest(name = "{displayName} <-- Barnes-Hut: {arguments}")
+    @ValueSource(booleans = [false, true])
+    fun `go - fixed nodes are not moved`(applyBarnesHut: Boolean) {
+        val network = CompactUndirectedNetwork().withInput(RANDOM_INPUT_NAME)
+        val sources = IntArray(network.linksNum) { network.getLinkSource(it) }
+        val targets = IntArray(network.linksNum) { network.getLinkTarget(it) }
+
+        val forceAtlas2 = CompactForceAtlas2(network.nodesNum, sources, targets, DoubleArray(sources.size) { 1.0 }).apply {
+            setSeed(SEED)
+            isBarnesHutOptimize = applyBarnesHut
+            for (n in 0 until network.nodesNum step 3) setFixed(n, true)
+            initAlgo()
+        }
+        val initialX = DoubleArray(network.nodesNum) { forceAtlas2.getX(it) }
+        val initialY = DoubleArray(network.nodesNum) { forceAtlas2.getY(it) }
+
+        repeat(LOOPS_NUM) { forceAtlas2.goAlgo() }
+        forceAtlas2.endAlgo()
+
+        for (n in 0 until network.nodesNum) {
+            if (n % 3 == 0) {
+                assertEquals(initialX[n], forceAtlas2.getX(n))
+                assertEquals(initialY[n], forceAtlas2.getY(n))
+            } else {
+                assertTrue(initialX[n] != forceAtlas2.getX(n) || initialY[n] != forceAtlas2.getY(n))
+            }
+        }
+    }
+
+    @ParameterizedTest(name = PARAMETERIZED_TEST_NAME)
+    @ValueSource(strings = ["karate-club.txt", RANDOM_INPUT_NAME])
+    fun `go - the layout with float repulsion is close to the one with double repulsion`(inputName: String) {
+        val network = CompactUndirectedNetwork().withInput(inputName)
+        val sources = IntArray(network.linksNum) { network.getLinkSource(it) }
+        val targets = IntArray(network.linksNum) { network.getLinkTarget(it) }
+
+        val (expected, actual) = listOf(false, true).map { isFloat ->
+            CompactForceAtlas2(network.nodesNum, sources, targets, DoubleArray(sources.size) { 1.0 }).apply {
+                setSeed(SEED)
+                threadsCount = 1
+                isBarnesHutOptimize = false
+                isFloatRepulsion = isFloat
+                initAlgo()
+                repeat(FLOAT_LOOPS_NUM) { goAlgo() }
+                endAlgo()
+            }
+        }
+
+        val extent = (0 until network.nodesNum).maxOf { maxOf(abs(expected.getX(it)), abs(expected.getY(it))) }
+        for (n in 0 until network.nodesNum) {
+            assertEquals(expected.getX(n), actual.getX(n), FLOAT_RELATIVE_TOLERANCE * extent)
+            assertEquals(expected.getY(n), actual.getY(n), FLOAT_RELATIVE_TOLERANCE * extent)
+        }
+    }
+}
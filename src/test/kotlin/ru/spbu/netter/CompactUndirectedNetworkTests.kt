@@ -0,0 +1,110 @@
+package ru.spbu.netter
+
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.TestInstance
+import org.junit.jupiter.api.TestInstance.Lifecycle
+import org.junit.jupiter.api.extension.ExtensionContext
+import org.junit.jupiter.params.ParameterizedTest
+import org.junit.jupiter.params.provider.Arguments
+import org.junit.jupiter.params.provider.ArgumentsProvider
+import org.junit.jupiter.params.provider.ArgumentsSource
+import ru.spbu.netter.controller.io.*
+import ru.spbu.netter.model.*
+import java.io.File
+import kotlin.streams.asStream
+
+
+@TestInstance(Lifecycle.PER_CLASS)
+internal class CompactUndirectedNetworkTests {
+    lateinit var network: CompactUndirectedNetwork
+
+    private val txtIOHandler: FileIOHandler = TxtIOHandler()
+
+    companion object {
+        private const val PARAMETERIZED_TEST_NAME = "{displayName} <-- {arguments}"
+
+        private val INPUT_FILES = File("src/test/resources/txt-inputs/").listFiles() ?: emptyArray<File>()
+
+        object InputsProvider : ArgumentsProvider {
+            override fun provideArguments(context: ExtensionContext?) =
+                INPUT_FILES.map { Arguments.of(it) }.asSequence().asStream()
+        }
+    }
+
+    private fun Network.getNodesAsTuples() =
+        nodes.values.map { listOf(it.id, it.community, it.centrality, it.x, it.y) }.sortedBy { it[0] as Int }
+
+    private fun Network.getLinksAsSortedPairs() =
+        links.map { minOf(it.n1.id, it.n2.id) to maxOf(it.n1.id, it.n2.id) }
+            .sortedWith(compareBy({ it.first }, { it.second }))
+
+    @BeforeEach
+    fun setUp() {
+        network = CompactUndirectedNetwork()
+    }
+
+    @ParameterizedTest(name = PARAMETERIZED_TEST_NAME)
+    @ArgumentsSource(InputsProvider::class)
+    fun `import - network contains the same data as UndirectedNetwork`(inputFile: File) {
+        val expectedNetwork = UndirectedNetwork()
+
+        txtIOHandler.importNetwork(expectedNetwork, inputFile)
+        txtIOHandler.importNetwork(network, inputFile)
+
+        assertEquals(expectedNetwork.nodes.size, network.nodes.size)
+        assertEquals(expectedNetwork.links.size, network.links.size)
+        assertIterableEquals(expectedNetwork.getNodesAsTuples(), network.getNodesAsTuples())
+        assertIterableEquals(expectedNetwork.getLinksAsSortedPairs(), network.getLinksAsSortedPairs())
+    }
+
+    @ParameterizedTest(name = PARAMETERIZED_TEST_NAME)
+    @ArgumentsSource(InputsProvider::class)
+    fun `import - CSR adjacency is sorted and matches the links`(inputFile: File) {
+        txtIOHandler.importNetwork(network, inputFile)
+
+        val expectedNeighbors = List(network.idBound) { sortedSetOf<Int>() }
+        for (link in network.links) if (link.n1.id != link.n2.id) {
+            expectedNeighbors[link.n1.id].add(link.n2.id)
+            expectedNeighbors[link.n2.id].add(link.n1.id)
+        }
+
+        with(network) {
+            assertEquals(idBound + 1, firstNeighborIndices.size)
+            for (id in 0 until idBound) {
+                assertIterableEquals(
+                    expectedNeighbors[id],
+                    neighbors.copyOfRange(firstNeighborIndices[id], firstNeighborIndices[id + 1]).asIterable(),
+                )
+            }
+            assertEquals(links.count { it.n1.id == it.n2.id }, selfLoopsNum)
+        }
+    }
+
+    @Test
+    fun `add link - reversed and repetitive links are not duplicated`() {
+        network.addLink(4, 6)
+        network.addLink(6, 4)
+        network.addLink(4, 6)
+        network.addLink(3, 3)
+
+        assertEquals(2, network.links.size)
+        assertTrue(network.links.contains(network.addLink(6, 4)))
+        assertIterableEquals(listOf(4 to 6, 3 to 3), network.links.map { it.n1.id to it.n2.id })
+    }
+
+    @Test
+    fun `node property - stays synchronized with the columns`() {
+        val node = network.addNode(2)
+        val xProperty = node.xProperty
+
+        node.x = 4.5
+        assertEquals(4.5, xProperty.get())
+
+        xProperty.set(-1.0)
+        assertEquals(-1.0, network.getX(2))
+        assertEquals(-1.0, network.nodes[2]?.x)
+        assertSame(xProperty, network.nodes[2]?.xProperty)
+    }
+}
@@ -0,0 +1,45 @@
+package ru.spbu.netter
+
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.Test
+import ru.spbu.netter.controller.centrality.ConnectedComponents
+import ru.spbu.netter.model.CsrAdjacency
+
+
+internal class ConnectedComponentsTests {
+
+    // Components {0, 1, 2}, {3, 5, 7}, {4}, {6} where 4 has a self-loop
+    private val links = listOf(0 to 1, 1 to 2, 7 to 3, 5 to 7, 4 to 4)
+    private val adjacency = CsrAdjacency.build(
+        8,
+        links.map { it.first }.toIntArray(),
+        links.map { it.second }.toIntArray(),
+        links.size,
+    )
+    private val components = ConnectedComponents(adjacency)
+
+    private fun ConnectedComponents.getNodes(component: Int) = List(getSize(component)) { getNode(component, it) }
+
+    private fun CsrAdjacency.getNeighbors(node: Int) =
+        (firstNeighborIndices[node] until firstNeighborIndices[node + 1]).map { neighbors[it] }
+
+    @Test
+    fun `init - components are numbered in the order of their smallest nodes and list the nodes in increasing order`() {
+        assertEquals(4, components.componentsNum)
+        assertEquals(listOf(listOf(0, 1, 2), listOf(3, 5, 7), listOf(4), listOf(6)), List(4) { components.getNodes(it) })
+        assertEquals(listOf(0, 0, 0, 1, 2, 1, 3, 1), List(8) { components.getComponent(it) })
+    }
+
+    @Test
+    fun `get adjacency - links are kept between the local indices of the nodes`() {
+        for (component in 0 until components.componentsNum) {
+            val nodes = components.getNodes(component)
+            val componentAdjacency = components.getAdjacency(component)
+
+            for ((index, node) in nodes.withIndex()) {
+                val actual = componentAdjacency.getNeighbors(index).map { nodes[it] }
+                assertEquals(adjacency.getNeighbors(node), actual, "Node $node")
+            }
+        }
+    }
+}
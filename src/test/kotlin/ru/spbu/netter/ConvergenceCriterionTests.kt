@@ -0,0 +1,29 @@
+package ru.spbu.netter
+
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.Test
+import ru.spbu.netter.controller.layout.ConvergenceCriterion
+
+
+internal class ConvergenceCriterionTests {
+
+    private fun ConvergenceCriterion.firstConvergedLoop(metrics: List<Double>) =
+        metrics.indexOfFirst { update(it) }.takeIf { it >= 0 }?.plus(1)
+
+    @Test
+    fun `update - converges once the metric has been below the threshold for the given number of loops`() {
+        val metrics = listOf(5.0, 0.5, 0.5, 2.0, 0.5, 0.1, 0.9, 0.5)
+
+        assertEquals(7, ConvergenceCriterion(1.0, 4).firstConvergedLoop(metrics))
+    }
+
+    @Test
+    fun `update - does not converge on a metric equal to the threshold or on NaN`() {
+        assertNull(ConvergenceCriterion(1.0, 1).firstConvergedLoop(listOf(1.0, Double.NaN, 1.0)))
+    }
+
+    @Test
+    fun `update - never converges with a zero threshold`() {
+        assertNull(ConvergenceCriterion(0.0, 1).firstConvergedLoop(List(10) { 0.0 }))
+    }
+}
@@ -0,0 +1,185 @@
+package ru.spbu.netter
+
+import org.jgrapht.alg.scoring.HarmonicCentrality
+import org.jgrapht.graph.DefaultEdge
+import org.jgrapht.graph.DefaultUndirectedGraph
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.TestInstance
+import org.junit.jupiter.api.TestInstance.Lifecycle
+import org.junit.jupiter.api.extension.ExtensionContext
+import org.junit.jupiter.params.ParameterizedTest
+import org.junit.jupiter.params.provider.Arguments
+import org.junit.jupiter.params.provider.ArgumentsProvider
+import org.junit.jupiter.params.provider.ArgumentsSource
+import org.junit.jupiter.params.provider.ValueSource
+import ru.spbu.netter.controller.centrality.IncrementalHarmonicCentrality
+import ru.spbu.netter.controller.centrality.ParallelHarmonicCentrality
+import ru.spbu.netter.model.*
+import kotlin.math.abs
+import kotlin.random.Random
+import kotlin.streams.asStream
+
+
+@TestInstance(Lifecycle.PER_CLASS)
+internal class HarmonicCentralityTests {
+    companion object {
+        private val THREADS_NUMS = listOf(1, 4)
+
+        private const val BIT_PARALLEL_RELATIVE_TOLERANCE = 1e-12
+
+        private const val APPROXIMATION_MAX_ERROR = 0.05
+
+        object InputsProvider : ArgumentsProvider {
+            override fun provideArguments(context: ExtensionContext?) = INPUT_NAMES.flatMap { name ->
+                listOf(false, true).flatMap { isCompact -> THREADS_NUMS.map { Arguments.of(name, isCompact, it) } }
+            }.asSequence().asStream()
+        }
+    }
+
+    private fun loadNetwork(inputName: String, isCompact: Boolean): Network =
+        (if (isCompact) CompactUndirectedNetwork() else UndirectedNetwork()).withInput(inputName, 3_000, 4_000)
+
+    // Vertices are added in the order of their ids, in which the distances are summed up
+    private fun computeWithJGraphT(network: Network): Map<Int, Double> {
+        val graph = DefaultUndirectedGraph<Int, DefaultEdge>(DefaultEdge::class.java)
+        network.nodes.keys.sorted().forEach { graph.addVertex(it) }
+        network.links.forEach { graph.addEdge(it.n1.id, it.n2.id) }
+
+        return HarmonicCentrality(graph).scores
+    }
+
+    @ParameterizedTest(name = PARAMETERIZED_TEST_NAME)
+    @ArgumentsSource(InputsProvider::class)
+    fun `compute - centralities are the same as the ones of JGraphT`(inputName: String, isCompact: Boolean, threadsNum: Int) {
+        val network = loadNetwork(inputName, isCompact)
+
+        val expected = computeWithJGraphT(network)
+        val actual = ParallelHarmonicCentrality(threadsNum).compute(network)
+
+        for (id in network.nodes.keys) assertEquals(expected[id], actual[id], "Node $id")
+    }
+
+    @ParameterizedTest(name = PARAMETERIZED_TEST_NAME)
+    @ArgumentsSource(InputsProvider::class)
+    fun `compute bit-parallel - centralities are the same as the ones of JGraphT up to rounding`(
+        inputName: String,
+        isCompact: Boolean,
+        threadsNum: Int,
+    ) {
+        val network = loadNetwork(inputName, isCompact)
+
+        val expected = computeWithJGraphT(network)
+        val actual = ParallelHarmonicCentrality(threadsNum, isBitParallel = true).compute(network)
+
+        for (id in network.nodes.keys) {
+            val expectedCentrality = expected.getValue(id)
+            assertEquals(expectedCentrality, actual[id], BIT_PARALLEL_RELATIVE_TOLERANCE * expectedCentrality, "Node $id")
+        }
+    }
+
+    @ParameterizedTest(name = PARAMETERIZED_TEST_NAME)
+    @ArgumentsSource(InputsProvider::class)
+    fun `compute approximately from all the nodes - centralities are the same as the exact ones`(
+        inputName: String,
+        isCompact: Boolean,
+        threadsNum: Int,
+    ) {
+        val network = loadNetwork(inputName, isCompact)
+
+        val expected = ParallelHarmonicCentrality(threadsNum).compute(network)
+        val actual = ParallelHarmonicCentrality(threadsNum).computeApproximately(network, network.nodes.size)
+
+        assertArrayEquals(expected, actual)
+    }
+
+    @Test
+    fun `compute approximately - centralities are within the max error from the exact ones`() {
+        val network = loadNetwork(RANDOM_INPUT_NAME, true)
+        val samplesNum = ParallelHarmonicCentrality.getSamplesNum(network.nodes.size, APPROXIMATION_MAX_ERROR)
+        assertTrue(samplesNum < network.nodes.size)
+
+        val expected = ParallelHarmonicCentrality(1).compute(network)
+        val actual = ParallelHarmonicCentrality(4).computeApproximately(network, samplesNum)
+
+        val maxError = ParallelHarmonicCentrality.getMaxError(network.nodes.size, samplesNum)
+        assertTrue(maxError <= APPROXIMATION_MAX_ERROR)
+        for (id in network.nodes.keys) assertTrue(abs(expected[id] - actual[id]) <= maxError, "Node $id")
+    }
+
+    private fun assertCentralitiesEqual(network: Network, expected: DoubleArray, actual: DoubleArray) {
+        for (id in network.nodes.keys) {
+            assertEquals(expected[id], actual[id], BIT_PARALLEL_RELATIVE_TOLERANCE * expected[id], "Node $id")
+        }
+    }
+
+    @ParameterizedTest(name = PARAMETERIZED_TEST_NAME)
+    @ValueSource(booleans = [false, true])
+    fun `compute incrementally after adding links - centralities are the same as the recomputed ones`(isCompact: Boolean) {
+        val network = loadNetwork(RANDOM_INPUT_NAME, isCompact)
+        val incrementalCentrality = IncrementalHarmonicCentrality(4)
+        incrementalCentrality.compute(network)
+
+        val random = Random(42)
+        val oldNodesNum = network.nodes.size
+        repeat(10) { network.addLink(random.nextInt(oldNodesNum), random.nextInt(oldNodesNum)) }
+        network.addLink(random.nextInt(oldNodesNum), oldNodesNum)
+        network.addNode(oldNodesNum + 1)
+
+        val actual = incrementalCentrality.compute(network)
+
+        assertCentralitiesEqual(network, ParallelHarmonicCentrality(1).compute(network), actual)
+    }
+
+    @ParameterizedTest(name = PARAMETERIZED_TEST_NAME)
+    @ValueSource(booleans = [false, true])
+    fun `compute incrementally after adding a link - only the sources with changed distances are searched from`(
+        isCompact: Boolean,
+    ) {
+        val network = if (isCompact) CompactUndirectedNetwork() else UndirectedNetwork()
+        listOf(0 to 1, 1 to 2, 2 to 3, 3 to 4, 5 to 6, 6 to 7).forEach { (id1, id2) -> network.addLink(id1, id2) }
+        val incrementalCentrality = IncrementalHarmonicCentrality(1, maxInsertedLinksShare = 1.0)
+        incrementalCentrality.compute(network)
+
+        // Only the distances from 0, 2, 3 and 4 get shorter, the other path is not reachable from the link
+        network.addLink(0, 2)
+        val actual = incrementalCentrality.compute(network)
+
+        assertEquals(4, incrementalCentrality.lastSearchedSourcesNum)
+        assertCentralitiesEqual(network, ParallelHarmonicCentrality(1).compute(network), actual)
+    }
+
+    @ParameterizedTest(name = PARAMETERIZED_TEST_NAME)
+    @ValueSource(booleans = [false, true])
+    fun `compute incrementally after adding many links - centralities are recomputed from all the nodes`(
+        isCompact: Boolean,
+    ) {
+        val network = loadNetwork(RANDOM_INPUT_NAME, isCompact)
+        val incrementalCentrality = IncrementalHarmonicCentrality(4, maxInsertedLinksShare = 0.001)
+        incrementalCentrality.compute(network)
+
+        val random = Random(42)
+        repeat(100) { network.addLink(random.nextInt(network.nodes.size), random.nextInt(network.nodes.size)) }
+
+        val actual = incrementalCentrality.compute(network)
+
+        assertEquals(network.nodes.size, incrementalCentrality.lastSearchedSourcesNum)
+        assertCentralitiesEqual(network, ParallelHarmonicCentrality(1).compute(network), actual)
+    }
+
+    @Test
+    fun `compute incrementally after removing links - centralities are recomputed from all the nodes`() {
+        val network = UndirectedNetwork()
+        listOf(0 to 1, 1 to 2, 2 to 3, 3 to 4).forEach { (id1, id2) -> network.addLink(id1, id2) }
+        val incrementalCentrality = IncrementalHarmonicCentrality(1, maxInsertedLinksShare = 1.0)
+        incrementalCentrality.compute(network)
+
+        // The number of links grows, but the last remembered link 3 - 4 is not at its index anymore
+        network.links.remove(network.links.last())
+        listOf(0 to 4, 3 to 4).forEach { (id1, id2) -> network.addLink(id1, id2) }
+        val actual = incrementalCentrality.compute(network)
+
+        assertEquals(network.nodes.size, incrementalCentrality.lastSearchedSourcesNum)
+        assertCentralitiesEqual(network, ParallelHarmonicCentrality(1).compute(network), actual)
+    }
+}
@@ -0,0 +1,41 @@
+package ru.spbu.netter
+
+import nl.cwts.networkanalysis.Clustering
+import nl.cwts.networkanalysis.FastLocalMovingAlgorithm
+import nl.cwts.networkanalysis.LeidenAlgorithm
+import nl.cwts.networkanalysis.Network as LeidenNetwork
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.TestInstance
+import org.junit.jupiter.api.TestInstance.Lifecycle
+import org.junit.jupiter.params.ParameterizedTest
+import org.junit.jupiter.params.provider.ArgumentsSource
+import ru.spbu.netter.controller.clustering.LeidenNetworkAdapter
+import ru.spbu.netter.model.*
+import java.util.*
+
+
+@TestInstance(Lifecycle.PER_CLASS)
+internal class LeidenAlgorithmTests {
+    companion object {
+        private const val RESOLUTION = 0.05
+        private const val RANDOMNESS = 1e-2
+        private const val SEED = 42L
+    }
+
+    private fun findClusters(network: LeidenNetwork, threadsNum: Int): IntArray {
+        val random = Random(SEED)
+        val clustering = Clustering(network.nNodes)
+        LeidenAlgorithm(RESOLUTION, 0, RANDOMNESS, FastLocalMovingAlgorithm(random), threadsNum, random)
+            .improveClustering(network, clustering)
+        return clustering.clusters
+    }
+
+    @ParameterizedTest(name = PARAMETERIZED_TEST_NAME)
+    @ArgumentsSource(InputNamesProvider::class)
+    fun `improve clustering - the clustering does not depend on the number of refinement threads`(inputName: String) {
+        val network = LeidenNetworkAdapter.convert(CompactUndirectedNetwork().withInput(inputName))
+        if (network.nNodes == 0) return
+
+        assertArrayEquals(findClusters(network, 1), findClusters(network, 4))
+    }
+}
@@ -0,0 +1,70 @@
+package ru.spbu.netter
+
+import nl.cwts.networkanalysis.Clustering
+import nl.cwts.networkanalysis.LeidenAlgorithm
+import nl.cwts.networkanalysis.Network as LeidenNetwork
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.TestInstance
+import org.junit.jupiter.api.TestInstance.Lifecycle
+import org.junit.jupiter.api.extension.ExtensionContext
+import org.junit.jupiter.params.ParameterizedTest
+import org.junit.jupiter.params.provider.Arguments
+import org.junit.jupiter.params.provider.ArgumentsProvider
+import org.junit.jupiter.params.provider.ArgumentsSource
+import ru.spbu.netter.controller.clustering.LeidenNetworkAdapter
+import ru.spbu.netter.controller.io.*
+import ru.spbu.netter.model.*
+import java.io.File
+import java.util.*
+import kotlin.streams.asStream
+
+
+@TestInstance(Lifecycle.PER_CLASS)
+internal class LeidenNetworkAdapterTests {
+    private val txtIOHandler: FileIOHandler = TxtIOHandler()
+
+    companion object {
+        private const val PARAMETERIZED_TEST_NAME = "{displayName} <-- {arguments}"
+
+        private const val RESOLUTION = 0.2
+        private const val RANDOMNESS = 1e-2
+        private const val SEED = 42L
+
+        private val INPUT_FILES = File("src/test/resources/txt-inputs/").listFiles() ?: emptyArray<File>()
+
+        object InputsProvider : ArgumentsProvider {
+            override fun provideArguments(context: ExtensionContext?) =
+                INPUT_FILES.flatMap { listOf(Arguments.of(it, false), Arguments.of(it, true)) }.asSequence().asStream()
+        }
+    }
+
+    private fun findClusters(network: LeidenNetwork): IntArray {
+        val clustering = Clustering(network.nNodes)
+        LeidenAlgorithm(RESOLUTION, 0, RANDOMNESS, Random(SEED)).improveClustering(network, clustering)
+        return clustering.clusters
+    }
+
+    @ParameterizedTest(name = PARAMETERIZED_TEST_NAME)
+    @ArgumentsSource(InputsProvider::class)
+    fun `convert - Leiden algorithm finds the same clustering as on the edge list network`(
+        inputFile: File,
+        isCompact: Boolean,
+    ) {
+        val network = if (isCompact) CompactUndirectedNetwork() else UndirectedNetwork()
+        txtIOHandler.importNetwork(network, inputFile)
+
+        val edgeListNetwork = with(network.links.toList()) {
+            LeidenNetwork(
+                network.nodes.size,
+                false,
+                arrayOf(IntArray(size) { this[it].n1.id }, IntArray(size) { this[it].n2.id }),
+                false,
+                true,
+            )
+        }
+        val convertedNetwork = LeidenNetworkAdapter.convert(network).apply { checkIntegrity() }
+
+        assertEquals(edgeListNetwork.nNodes, convertedNetwork.nNodes)
+        assertArrayEquals(findClusters(edgeListNetwork), findClusters(convertedNetwork))
+    }
+}
@@ -0,0 +1,91 @@
+package ru.spbu.netter
+
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.params.ParameterizedTest
+import org.junit.jupiter.params.provider.ValueSource
+import ru.spbu.netter.controller.io.MappedLineReader
+import ru.spbu.netter.controller.io.findLineStart
+import java.io.File
+import java.io.RandomAccessFile
+
+
+internal class MappedLineReaderTests {
+
+    companion object {
+        private val TEMP_FILE = File("build/test-outputs/mapped-line-reader-test.txt")
+
+        private val NUMBERS = listOf(
+            "0", "-0", "+7", "007", "-2147483648", "2147483647", "2147483648", "-2147483649", "99999999999", "", "+", "-",
+            "1.5", "-.5", "5.", ".", "1e3", "1E-3", "2.5e+22", "1e23", "1e-22", "1e-400", "1e400", "0.1", "0.30000000000000004",
+            "123456789012345678", "1.7976931348623157e308", "4.9e-324", "NaN", "-Infinity", "0x1p3", "1.5f", "1e", "1e+",
+            "1.2.3", "--1", "1\t", "١٢", "١.٥", "12a",
+        )
+    }
+
+    private fun withReader(content: String, windowSize: Long, action: (MappedLineReader) -> Unit) {
+        TEMP_FILE.parentFile.mkdirs()
+        TEMP_FILE.writeText(content)
+        RandomAccessFile(TEMP_FILE, "r").channel.use {
+            action(MappedLineReader(it, ' '.code.toByte(), windowSize = windowSize))
+        }
+    }
+
+    private fun MappedLineReader.readColumns(): List<List<Int>> {
+        val lines = mutableListOf<List<Int>>()
+        while (readLine()) {
+            lines.add(if (isLineEmpty) emptyList() else List(columnsNum) { parseInt(it) { fail("Not an int") } })
+        }
+        return lines
+    }
+
+    @ParameterizedTest(name = "{displayName} <-- window of {arguments} bytes")
+    @ValueSource(longs = [9, 10, 13, 64])
+    fun `read line - lines are split the same way as by BufferedReader`(windowSize: Long) {
+        val content = "1 2\r\n3 45\r67 8\n\n9 10 11\n\r\r\n12"
+        val expected = content.reader().buffered().readLines().map { line ->
+            if (line.isEmpty()) emptyList() else line.split(" ").map { it.toInt() }
+        }
+
+        withReader(content, windowSize) { assertEquals(expected, it.readColumns()) }
+    }
+
+    @Test
+    fun `parse - numbers are parsed the same way as by String`() {
+        withReader(NUMBERS.joinToString("\n"), 64) { reader ->
+            for (number in NUMBERS) {
+                assertTrue(reader.readLine())
+                assertEquals(number.toIntOrNull(), runCatching { reader.parseInt(0) { error("") } }.getOrNull(), number)
+                assertEquals(
+                    number.toDoubleOrNull()?.toRawBits(),
+                    runCatching { reader.parseDouble(0) { error("") }.toRawBits() }.getOrNull(),
+                    number,
+                )
+            }
+        }
+    }
+
+    @ParameterizedTest(name = "{displayName} <-- chunks of {arguments} bytes")
+    @ValueSource(longs = [1, 2, 3, 5, 64])
+    fun `read chunks - lines are split the same way as by BufferedReader`(chunkSize: Long) {
+        val content = "1 2\r\n3 45\r67 8\n\n9 10 11\n\r\r\n12"
+        val expected = content.reader().buffered().readLines().map { line ->
+            if (line.isEmpty()) emptyList() else line.split(" ").map { it.toInt() }
+        }
+
+        TEMP_FILE.parentFile.mkdirs()
+        TEMP_FILE.writeText(content)
+        val actual = RandomAccessFile(TEMP_FILE, "r").channel.use { channel ->
+            val lines = mutableListOf<List<Int>>()
+            var chunkStart = 0L
+            while (chunkStart < channel.size()) {
+                val chunkEnd = channel.findLineStart(minOf(chunkStart + chunkSize, channel.size()))
+                lines.addAll(MappedLineReader(channel, ' '.code.toByte(), chunkStart, chunkEnd, 9).readColumns())
+                chunkStart = chunkEnd
+            }
+            lines
+        }
+
+        assertEquals(expected, actual)
+    }
+}
@@ -0,0 +1,75 @@
+package ru.spbu.netter
+
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.Test
+import ru.spbu.netter.controller.clustering.LeidenNetworkAdapter
+import ru.spbu.netter.controller.layout.MultilevelCoarsening
+import ru.spbu.netter.model.CompactUndirectedNetwork
+import kotlin.math.abs
+
+
+internal class MultilevelCoarseningTests {
+
+    companion object {
+        private const val NODES_NUM = 5_000
+        private const val LINKS_NUM = 20_000
+        private const val MIN_NODES_NUM = 100
+    }
+
+    private val network = CompactUndirectedNetwork().withRandomLinks(NODES_NUM, LINKS_NUM)
+    private val masses = DoubleArray(NODES_NUM) { 1.0 + it % 3 }
+
+    private val coarsening = MultilevelCoarsening(LeidenNetworkAdapter.convert(network), masses, MIN_NODES_NUM)
+
+    @Test
+    fun `init - each level merges nodes in pairs at most and keeps the total node weight`() {
+        assertTrue(coarsening.levelsNum > 1)
+        coarsening.networks.zipWithNext { fine, coarse ->
+            assertTrue(coarse.nNodes < fine.nNodes)
+            assertTrue(2 * coarse.nNodes >= fine.nNodes)
+            assertEquals(fine.totalNodeWeight, coarse.totalNodeWeight)
+        }
+    }
+
+    @Test
+    fun `init - the mass of each coarse node is the total mass of the merged nodes`() {
+        assertSame(masses, coarsening.masses[0])
+        for (level in 0 until coarsening.levelsNum - 1) {
+            val fineMasses = coarsening.masses[level]
+            val coarseMasses = coarsening.masses[level + 1]
+            val coarseX = DoubleArray(coarseMasses.size) { 100.0 * it }
+            val clusters = coarsening.interpolate(level, coarseX, coarseX).first.map { Math.round(it / 100.0).toInt() }
+
+            val expected = DoubleArray(coarseMasses.size)
+            for (node in fineMasses.indices) expected[clusters[node]] += fineMasses[node]
+            assertArrayEquals(expected, coarseMasses)
+        }
+    }
+
+    @Test
+    fun `create layout - the layout has the nodes and the edges of the level`() {
+        for (level in 0 until coarsening.levelsNum) {
+            val network = coarsening.networks[level]
+            val layout = coarsening.createLayout(level)
+
+            assertEquals(network.nNodes, layout.nodesNum)
+            assertEquals(network.nEdges, network.edges[0].size)
+        }
+    }
+
+    @Test
+    fun `interpolate - nodes are placed next to their coarse nodes`() {
+        val coarse = coarsening.networks[1]
+        val coarseX = DoubleArray(coarse.nNodes) { 100.0 * it }
+        val coarseY = DoubleArray(coarse.nNodes) { -100.0 * it }
+
+        val (x, y) = coarsening.interpolate(0, coarseX, coarseY)
+
+        assertEquals(NODES_NUM, x.size)
+        for (node in x.indices) {
+            val coarseNode = (x[node] / 100.0).let { Math.round(it).toInt() }
+            assertTrue(abs(x[node] - coarseX[coarseNode]) <= 1.0)
+            assertTrue(abs(y[node] - coarseY[coarseNode]) <= 1.0)
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ru.spbu.netter
+
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.params.ParameterizedTest
+import org.junit.jupiter.params.provider.ValueSource
+import ru.spbu.netter.controller.io.Neo4jBatchWriter
+import ru.spbu.netter.model.CompactUndirectedNetwork
+
+
+internal class Neo4jBatchWriterTests {
+
+    /**
+     * A local stand-in for a Neo4j database which runs the statements of [Neo4jBatchWriter] on in-memory nodes and
+     * links.
+     */
+    private class InMemoryGraph {
+        val nodes = mutableMapOf<Any?, Map<*, *>>()
+        val links = mutableListOf<Pair<Any?, Any?>>()
+        var maxRowsNum = 0
+
+        fun runCount(query: String, parameters: Map<String, Any>): Long {
+
+            if (query == Neo4jBatchWriter.DELETE_NODES_QUERY) {
+                val deleted = nodes.keys.take(parameters.getValue(Neo4jBatchWriter.LIMIT_PARAMETER) as Int).toSet()
+                nodes.keys.removeAll(deleted)
+                links.removeAll { it.first in deleted || it.second in deleted }
+                return deleted.size.toLong()
+            }
+
+            val rows = parameters.getValue(Neo4jBatchWriter.ROWS_PARAMETER) as List<*>
+            maxRowsNum = maxOf(maxRowsNum, rows.size)
+            for (row in rows.map { it as Map<*, *> }) {
+                when (query) {
+                    Neo4jBatchWriter.CREATE_NODES_QUERY -> {
+                        assertNull(nodes.put(row["id"], row), "Node ids must be unique")
+                    }
+                    Neo4jBatchWriter.CREATE_LINKS_QUERY -> {
+                        if (row["id1"] in nodes && row["id2"] in nodes) links.add(Pair(row["id1"], row["id2"]))
+                    }
+                    else -> fail("Unexpected query: $query")
+                }
+            }
+            return rows.size.toLong()
+        }
+    }
+
+    @ParameterizedTest(name = "{displayName} <-- chunks of {arguments} rows")
+    @ValueSource(ints = [1, 7, 1000, 100_000])
+    fun `delete, create - graph contains the network only`(chunkSize: Int) {
+        val network = CompactUndirectedNetwork().withRandomLinks(1_000, 3_000)
+        val graph = InMemoryGraph().apply {
+            repeat(500) { nodes[-it] = emptyMap<String, Any>() }
+            links.add(Pair(0, -1))
+        }
+        val writer = Neo4jBatchWriter(chunkSize, graph::runCount)
+
+        assertEquals(500L, writer.deleteNodes())
+        writer.createNodes(network)
+        writer.createLinks(network)
+
+        assertTrue(graph.maxRowsNum <= chunkSize)
+        assertEquals(network.nodes.keys, graph.nodes.keys)
+        for ((id, row) in graph.nodes) with(network.nodes.getValue(id as Int)) {
+            assertEquals(mapOf("id" to id, "community" to community, "centrality" to centrality, "x" to x, "y" to y), row)
+        }
+        assertIterableEquals(network.links.map { Pair(it.n1.id, it.n2.id) }, graph.links)
+    }
+}
@@ -0,0 +1,96 @@
+package ru.spbu.netter
+
+import nl.cwts.networkanalysis.Clustering
+import nl.cwts.networkanalysis.FastLocalMovingAlgorithm
+import nl.cwts.networkanalysis.ParallelLocalMovingAlgorithm
+import nl.cwts.networkanalysis.Network as LeidenNetwork
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.TestInstance
+import org.junit.jupiter.api.TestInstance.Lifecycle
+import org.junit.jupiter.params.ParameterizedTest
+import org.junit.jupiter.params.provider.ArgumentsSource
+import ru.spbu.netter.controller.clustering.LeidenNetworkAdapter
+import ru.spbu.netter.model.*
+import java.util.*
+import kotlin.math.abs
+
+
+@TestInstance(Lifecycle.PER_CLASS)
+internal class ParallelLocalMovingAlgorithmTests {
+    companion object {
+        private const val RESOLUTION = 0.05
+        private const val BATCH_SIZE = 16
+        private const val SEED = 42L
+        private const val EPSILON = 1e-9
+
+        // The parallel algorithm moves nodes in batches against stale cluster weights, so it may end up slightly worse
+        private const val QUALITY_RELATIVE_TOLERANCE = 0.02
+    }
+
+    private fun findClusters(network: LeidenNetwork, threadsNum: Int): Clustering {
+        val clustering = Clustering(network.nNodes)
+        ParallelLocalMovingAlgorithm(RESOLUTION, 0, threadsNum, BATCH_SIZE, Random(SEED))
+            .improveClustering(network, clustering)
+        return clustering
+    }
+
+    @ParameterizedTest(name = PARAMETERIZED_TEST_NAME)
+    @ArgumentsSource(InputNamesProvider::class)
+    fun `improve clustering - the clustering does not depend on the number of threads`(inputName: String) {
+        val network = LeidenNetworkAdapter.convert(CompactUndirectedNetwork().withInput(inputName))
+        if (network.nNodes == 0) return
+
+        assertArrayEquals(findClusters(network, 1).clusters, findClusters(network, 4).clusters)
+    }
+
+    @ParameterizedTest(name = PARAMETERIZED_TEST_NAME)
+    @ArgumentsSource(InputNamesProvider::class)
+    fun `improve clustering - no single node move increases the quality`(inputName: String) {
+        val network = CompactUndirectedNetwork().withInput(inputName)
+        if (network.isEmpty()) return
+
+        // Nodes and links of the converted network are unweighted, so cluster weights are cluster sizes
+        val clusters = findClusters(LeidenNetworkAdapter.convert(network), 4).clusters
+        val clusterSizes = clusters.groupBy { it }.mapValues { it.value.size }
+        val adjacency = CsrAdjacency.build(
+            clusters.size,
+            network.links.map { it.n1.id }.toIntArray(),
+            network.links.map { it.n2.id }.toIntArray(),
+            network.links.size,
+        )
+
+        for (node in clusters.indices) {
+            val currentCluster = clusters[node]
+            val linksPerCluster = (adjacency.firstNeighborIndices[node] until adjacency.firstNeighborIndices[node + 1])
+                .groupBy { clusters[adjacency.neighbors[it]] }
+                .mapValues { it.value.size }
+
+            val stayIncrement = (linksPerCluster[currentCluster] ?: 0) - (clusterSizes.getValue(currentCluster) - 1) * RESOLUTION
+            assertTrue(stayIncrement > -EPSILON) { "Node $node is better off in an empty cluster" }
+            for ((cluster, linksNum) in linksPerCluster) {
+                val moveIncrement = linksNum - clusterSizes.getValue(cluster) * RESOLUTION
+                assertTrue(cluster == currentCluster || moveIncrement < stayIncrement + EPSILON) {
+                    "Node $node is better off in cluster $cluster"
+                }
+            }
+        }
+    }
+
+    @ParameterizedTest(name = PARAMETERIZED_TEST_NAME)
+    @ArgumentsSource(InputNamesProvider::class)
+    fun `improve clustering - the quality is not worse than the one of fast local moving`(inputName: String) {
+        val network = LeidenNetworkAdapter.convert(CompactUndirectedNetwork().withInput(inputName))
+        if (network.nNodes == 0) return
+
+        val fastLocalMovingAlgorithm = FastLocalMovingAlgorithm(RESOLUTION, 0, Random(SEED))
+        val expectedClustering = Clustering(network.nNodes)
+        fastLocalMovingAlgorithm.improveClustering(network, expectedClustering)
+        val expected = fastLocalMovingAlgorithm.calcQuality(network, expectedClustering)
+
+        val actual = fastLocalMovingAlgorithm.calcQuality(network, findClusters(network, 4))
+
+        assertTrue(actual >= expected - QUALITY_RELATIVE_TOLERANCE * abs(expected) - EPSILON) {
+            "The quality is $actual but the one of fast local moving is $expected"
+        }
+    }
+}
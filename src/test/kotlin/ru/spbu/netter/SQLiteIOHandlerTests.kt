@@ -0,0 +1,42 @@
+package ru.spbu.netter
+
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.params.ParameterizedTest
+import org.junit.jupiter.params.provider.ValueSource
+import ru.spbu.netter.controller.io.SQLiteIOHandler
+import ru.spbu.netter.model.CompactUndirectedNetwork
+import ru.spbu.netter.model.Network
+import java.io.File
+
+
+internal class SQLiteIOHandlerTests {
+
+    companion object {
+        private val OUTPUT_FILE = File("build/test-outputs/sqlite-io-handler-test.db")
+    }
+
+    private fun Network.getNodeRows() = nodes.values.map { listOf(it.id, it.community, it.centrality, it.x, it.y) }
+
+    private fun Network.getLinkRows() = links.map { listOf(it.n1.id, it.n2.id) }
+
+    @ParameterizedTest(name = "{displayName} <-- high throughput: {arguments}")
+    @ValueSource(booleans = [false, true])
+    fun `export, import - network is the same`(isHighThroughput: Boolean) {
+        val expected = CompactUndirectedNetwork().withRandomLinks(25_000, 60_000)
+        for (id in 0 until expected.idBound) {
+            expected.setCommunity(id, id % 17)
+            expected.setX(id, id / 3.0)
+        }
+
+        val sqliteIOHandler = SQLiteIOHandler()
+        if (isHighThroughput) {
+            sqliteIOHandler.exportNetworkHighThroughput(expected, OUTPUT_FILE)
+        } else {
+            sqliteIOHandler.exportNetwork(expected, OUTPUT_FILE)
+        }
+        val actual = CompactUndirectedNetwork().also { sqliteIOHandler.importNetwork(it, OUTPUT_FILE) }
+
+        assertIterableEquals(expected.getLinkRows(), actual.getLinkRows())
+        assertIterableEquals(expected.getNodeRows(), actual.getNodeRows())
+    }
+}
@@ -0,0 +1,67 @@
+package ru.spbu.netter
+
+import nl.cwts.networkanalysis.Clustering
+import nl.cwts.networkanalysis.FastLocalMovingAlgorithm
+import nl.cwts.networkanalysis.LocalMergingAlgorithm
+import nl.cwts.networkanalysis.Network as LeidenNetwork
+import nl.cwts.networkanalysis.SubnetworkArena
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.Test
+import ru.spbu.netter.controller.clustering.LeidenNetworkAdapter
+import ru.spbu.netter.model.*
+import java.util.*
+
+
+internal class SubnetworkArenaTests {
+
+    companion object {
+        private const val RESOLUTION = 0.01
+        private const val RANDOMNESS = 1e-2
+        private const val SEED = 42L
+    }
+
+    // Finds the clusterings of the subnetworks one after another by the same algorithm, like the refinement does
+    private fun assertSameClusterings(network: LeidenNetwork, clustering: Clustering, arena: SubnetworkArena) {
+        val subnetworks = network.createSubnetworks(clustering)
+        val random = Random()
+        val localMergingAlgorithm = LocalMergingAlgorithm(RESOLUTION, RANDOMNESS, random)
+
+        assertEquals(subnetworks.size, arena.nSubnetworks)
+        for ((i, subnetwork) in subnetworks.withIndex()) {
+            assertEquals(subnetwork.nNodes, arena.getNNodes(i))
+
+            random.setSeed(SEED + i)
+            val expected = localMergingAlgorithm.findClustering(subnetwork)
+            random.setSeed(SEED + i)
+            assertEquals(expected.nNodesPerCluster.size, localMergingAlgorithm.findClustering(arena, i))
+            assertArrayEquals(expected.clusters, arena.getClusters(i), "Subnetwork $i")
+        }
+    }
+
+    @Test
+    fun `fill - local merging finds the same clusterings as on separate subnetworks`() {
+        val network = LeidenNetworkAdapter.convert(CompactUndirectedNetwork().withRandomLinks(2_000, 8_000))
+        val clustering = Clustering(network.nNodes)
+        FastLocalMovingAlgorithm(RESOLUTION, 0, Random(SEED)).improveClustering(network, clustering)
+
+        val arena = SubnetworkArena().apply {
+            fill(LeidenNetworkAdapter.convert(CompactUndirectedNetwork().withRandomLinks(3_000, 12_000)), Clustering(3_000))
+            fill(network, clustering)
+        }
+
+        assertSameClusterings(network, clustering, arena)
+    }
+
+    @Test
+    fun `fill - small subnetworks after larger ones are clustered the same as separate subnetworks`() {
+        val network = LeidenNetworkAdapter.convert(CompactUndirectedNetwork().withRandomLinks(2_000, 16_000))
+        // Clusters of 977, 512, 256, ..., 1 nodes, each of them is smaller than the previous one
+        val clustering = Clustering(IntArray(network.nNodes) { node ->
+            Integer.numberOfLeadingZeros(network.nNodes - node) - Integer.numberOfLeadingZeros(network.nNodes)
+        })
+
+        val arena = SubnetworkArena().apply { fill(network, clustering) }
+
+        assertSameClusterings(network, clustering, arena)
+    }
+}
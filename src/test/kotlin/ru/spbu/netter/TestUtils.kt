@@ -0,0 +1,66 @@
+package ru.spbu.netter
+
+import org.junit.jupiter.api.extension.ExtensionContext
+import org.junit.jupiter.params.provider.Arguments
+import org.junit.jupiter.params.provider.ArgumentsProvider
+import ru.spbu.netter.controller.io.FileIOHandler
+import ru.spbu.netter.controller.io.TxtIOHandler
+import ru.spbu.netter.model.Network
+import java.io.File
+import kotlin.random.Random
+import kotlin.streams.asStream
+
+
+internal const val PARAMETERIZED_TEST_NAME = "{displayName} <-- {arguments}"
+
+/**
+ * The name of the input which is a random network instead of a txt file.
+ */
+internal const val RANDOM_INPUT_NAME = "random"
+
+private const val TXT_INPUTS_DIRECTORY = "src/test/resources/txt-inputs/"
+
+private const val RANDOM_INPUT_NODES_NUM = 2_000
+private const val RANDOM_INPUT_LINKS_NUM = 8_000
+
+/**
+ * The names of all the txt inputs followed by [RANDOM_INPUT_NAME].
+ */
+internal val INPUT_NAMES = (File(TXT_INPUTS_DIRECTORY).list()?.toList() ?: emptyList()) + RANDOM_INPUT_NAME
+
+private val txtIOHandler: FileIOHandler by lazy { TxtIOHandler() }
+
+
+/**
+ * Provides each of the [INPUT_NAMES] as the only argument.
+ */
+internal object InputNamesProvider : ArgumentsProvider {
+    override fun provideArguments(context: ExtensionContext?) =
+        INPUT_NAMES.map { Arguments.of(it) }.asSequence().asStream()
+}
+
+/**
+ * Adds [linksNum] random links between [nodesNum] nodes to the network, so that all the nodes are present.
+ */
+internal fun <T : Network> T.withRandomLinks(nodesNum: Int, linksNum: Int, seed: Long = 42): T {
+    val random = Random(seed)
+
+    for (id in 0 until nodesNum) addNode(id)
+    repeat(linksNum) { addLink(random.nextInt(nodesNum), random.nextInt(nodesNum)) }
+
+    return this
+}
+
+/**
+ * Imports the txt input of the given name into the network, or adds random links between [randomNodesNum] nodes to it
+ * for [RANDOM_INPUT_NAME].
+ */
+internal fun <T : Network> T.withInput(
+    inputName: String,
+    randomNodesNum: Int = RANDOM_INPUT_NODES_NUM,
+    randomLinksNum: Int = RANDOM_INPUT_LINKS_NUM,
+): T = if (inputName == RANDOM_INPUT_NAME) {
+    withRandomLinks(randomNodesNum, randomLinksNum)
+} else {
+    also { txtIOHandler.importNetwork(it, File(TXT_INPUTS_DIRECTORY + inputName)) }
+}
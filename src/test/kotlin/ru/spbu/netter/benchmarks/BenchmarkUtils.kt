@@ -0,0 +1,39 @@
+package ru.spbu.netter.benchmarks
+
+import java.lang.management.ManagementFactory
+import kotlin.system.measureNanoTime
+
+
+internal const val BENCHMARK_TAG = "benchmark"
+
+private const val NANOS_IN_MILLI = 1e6
+
+private const val BYTES_IN_MEGABYTE = 1024.0 * 1024.0
+
+
+/**
+ * Runs [action] [warmUpsNum] times without measuring and then [runsNum] times measuring, prints and returns the
+ * median time of a run in milliseconds.
+ */
+internal fun measureMedianMillis(name: String, warmUpsNum: Int = 2, runsNum: Int = 5, action: () -> Unit): Double {
+    repeat(warmUpsNum) { action() }
+    val times = List(runsNum) { measureNanoTime(action) / NANOS_IN_MILLI }.sorted()
+
+    return times[runsNum / 2].also { println("$name: %.2f ms (median of $runsNum runs)".format(it)) }
+}
+
+/**
+ * Runs [action] once to warm up and once measuring, prints and returns the number of bytes allocated by the current
+ * thread during the measured run.
+ */
+internal fun measureAllocatedBytes(name: String, action: () -> Unit): Long {
+    val threadMXBean = ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+    val threadId = Thread.currentThread().id
+
+    action()
+    val allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId)
+    action()
+    val allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore
+
+    return allocated.also { println("$name: %.2f MB allocated".format(it / BYTES_IN_MEGABYTE)) }
+}
@@ -0,0 +1,126 @@
+package ru.spbu.netter.benchmarks
+
+import org.gephi.graph.api.Edge
+import org.gephi.graph.api.Graph
+import org.gephi.graph.api.Node
+import org.gephi.layout.plugin.forceAtlas2.CompactForceAtlas2
+import org.gephi.layout.plugin.forceAtlas2.ForceAtlas2
+import org.gephi.layout.plugin.forceAtlas2.ForceAtlas2LayoutData
+import org.junit.jupiter.api.Tag
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.TestInstance
+import org.junit.jupiter.api.TestInstance.Lifecycle
+import org.junit.jupiter.params.ParameterizedTest
+import org.junit.jupiter.params.provider.ValueSource
+import ru.spbu.netter.model.CompactUndirectedNetwork
+import ru.spbu.netter.withRandomLinks
+
+
+private const val NODES_NUM = 100_000
+private const val LINKS_NUM = 500_000
+
+private const val SEED = 42L
+
+private const val ITERATIONS_NUM = 10
+
+private const val DENSE_NODES_NUM = 20_000
+private const val DENSE_LINKS_NUM = 1_000_000
+
+private const val EXACT_REPULSION_NODES_NUM = 10_000
+
+
+@Tag(BENCHMARK_TAG)
+@TestInstance(Lifecycle.PER_CLASS)
+internal class ForceAtlas2Benchmarks {
+    private val network = CompactUndirectedNetwork(NODES_NUM, LINKS_NUM).withRandomLinks(NODES_NUM, LINKS_NUM)
+    private val sources = IntArray(network.linksNum) { network.getLinkSource(it) }
+    private val targets = IntArray(network.linksNum) { network.getLinkTarget(it) }
+
+    @Test
+    fun `object ForceAtlas2 iteration`() {
+        val nodes = List(NODES_NUM) { Node(it, ForceAtlas2LayoutData()) }
+        val forceAtlas2 = ForceAtlas2().apply {
+            setGraph(Graph(nodes, sources.indices.map { Edge(nodes[sources[it]], nodes[targets[it]]) }))
+            setSeed(SEED)
+            initAlgo()
+        }
+
+        measureMedianMillis("Object ForceAtlas2 iteration", action = forceAtlas2::goAlgo)
+        forceAtlas2.endAlgo()
+    }
+
+    @Test
+    fun `compact ForceAtlas2 iteration`() {
+        val forceAtlas2 = CompactForceAtlas2(NODES_NUM, sources, targets, DoubleArray(sources.size) { 1.0 }).apply {
+            setSeed(SEED)
+            initAlgo()
+        }
+
+        measureMedianMillis("Compact ForceAtlas2 iteration", action = forceAtlas2::goAlgo)
+        forceAtlas2.endAlgo()
+    }
+
+    @Test
+    fun `compact ForceAtlas2 Barnes-Hut phases`() {
+        val forceAtlas2 = CompactForceAtlas2(NODES_NUM, sources, targets, DoubleArray(sources.size) { 1.0 }).apply {
+            setSeed(SEED)
+            isBarnesHutOptimize = true
+            initAlgo()
+        }
+
+        repeat(ITERATIONS_NUM) { forceAtlas2.goAlgo() }
+        forceAtlas2.endAlgo()
+
+        println("Barnes-Hut tree build: %.2f ms per iteration".format(forceAtlas2.treeBuildNanos / 1e6 / ITERATIONS_NUM))
+        println("Repulsion: %.2f ms per iteration".format(forceAtlas2.repulsionNanos / 1e6 / ITERATIONS_NUM))
+    }
+
+    @ParameterizedTest(name = "{displayName} <-- {arguments} threads")
+    @ValueSource(ints = [1, 2, 4, 8])
+    fun `compact ForceAtlas2 attraction on dense network`(threadsNum: Int) {
+        val denseNetwork = CompactUndirectedNetwork(DENSE_NODES_NUM, DENSE_LINKS_NUM)
+            .withRandomLinks(DENSE_NODES_NUM, DENSE_LINKS_NUM)
+        val denseSources = IntArray(denseNetwork.linksNum) { denseNetwork.getLinkSource(it) }
+        val denseTargets = IntArray(denseNetwork.linksNum) { denseNetwork.getLinkTarget(it) }
+
+        val forceAtlas2 = CompactForceAtlas2(DENSE_NODES_NUM, denseSources, denseTargets, DoubleArray(denseSources.size) { 1.0 }).apply {
+            setSeed(SEED)
+            threadsCount = threadsNum
+            isBarnesHutOptimize = true
+            initAlgo()
+        }
+
+        repeat(ITERATIONS_NUM) { forceAtlas2.goAlgo() }
+        forceAtlas2.endAlgo()
+
+        println("Attraction with $threadsNum threads: %.2f ms per iteration".format(forceAtlas2.attractionNanos / 1e6 / ITERATIONS_NUM))
+    }
+
+    @ParameterizedTest(name = "{displayName} <-- Barnes-Hut: {arguments}")
+    @ValueSource(booleans = [false, true])
+    fun `compact ForceAtlas2 double and float repulsion`(applyBarnesHut: Boolean) {
+        val nodesNum = if (applyBarnesHut) NODES_NUM else EXACT_REPULSION_NODES_NUM
+        val subSources = sources.filterIndexed { i, source -> source < nodesNum && targets[i] < nodesNum }.toIntArray()
+        val subTargets = targets.filterIndexed { i, target -> target < nodesNum && sources[i] < nodesNum }.toIntArray()
+
+        for (isFloat in listOf(false, true)) {
+            val forceAtlas2 = CompactForceAtlas2(nodesNum, subSources, subTargets, DoubleArray(subSources.size) { 1.0 }).apply {
+                setSeed(SEED)
+                threadsCount = 1
+                isBarnesHutOptimize = applyBarnesHut
+                isFloatRepulsion = isFloat
+                initAlgo()
+            }
+
+            repeat(ITERATIONS_NUM) { forceAtlas2.goAlgo() }
+            forceAtlas2.endAlgo()
+
+            println(
+                "%s repulsion: %.2f ms per iteration".format(
+                    if (isFloat) "Float" else "Double",
+                    forceAtlas2.repulsionNanos / 1e6 / ITERATIONS_NUM,
+                )
+            )
+        }
+    }
+}
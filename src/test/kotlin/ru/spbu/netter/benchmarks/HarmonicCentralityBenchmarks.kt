@@ -0,0 +1,89 @@
+package ru.spbu.netter.benchmarks
+
+import org.jgrapht.alg.scoring.HarmonicCentrality
+import org.jgrapht.graph.DefaultEdge
+import org.jgrapht.graph.DefaultUndirectedGraph
+import org.junit.jupiter.api.Tag
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.TestInstance
+import org.junit.jupiter.api.TestInstance.Lifecycle
+import ru.spbu.netter.controller.centrality.IncrementalHarmonicCentrality
+import ru.spbu.netter.controller.centrality.ParallelHarmonicCentrality
+import ru.spbu.netter.model.CompactUndirectedNetwork
+import ru.spbu.netter.withRandomLinks
+import kotlin.random.Random
+
+
+private const val NODES_NUM = 10_000
+private const val LINKS_NUM = 50_000
+private const val INSERTED_LINKS_NUM = 10
+
+// About as many links as nodes, so that the network falls apart into many components of very different sizes
+private const val SPARSE_LINKS_NUM = 6_000
+
+
+@Tag(BENCHMARK_TAG)
+@TestInstance(Lifecycle.PER_CLASS)
+internal class HarmonicCentralityBenchmarks {
+    private val network = CompactUndirectedNetwork(NODES_NUM, LINKS_NUM).withRandomLinks(NODES_NUM, LINKS_NUM)
+
+    @Test
+    fun `JGraphT harmonic centrality`() {
+        // The conversion used before the parallel engine: boxed vertices and an object per edge
+        measureMedianMillis("JGraphT", warmUpsNum = 1, runsNum = 3) {
+            val graph = DefaultUndirectedGraph<Int, DefaultEdge>(DefaultEdge::class.java)
+            network.nodes.keys.forEach { graph.addVertex(it) }
+            network.links.forEach { graph.addEdge(it.n1.id, it.n2.id) }
+            HarmonicCentrality(graph).scores
+        }
+    }
+
+    @Test
+    fun `parallel harmonic centrality`() {
+        for (threadsNum in listOf(1, Runtime.getRuntime().availableProcessors())) {
+            measureMedianMillis("Parallel BFS, $threadsNum threads") { ParallelHarmonicCentrality(threadsNum).compute(network) }
+            measureMedianMillis("Parallel MS-BFS, $threadsNum threads") {
+                ParallelHarmonicCentrality(threadsNum, isBitParallel = true).compute(network)
+            }
+        }
+    }
+
+    @Test
+    fun `approximate harmonic centrality`() {
+        val threadsNum = Runtime.getRuntime().availableProcessors()
+        for (maxError in listOf(0.2, 0.1, 0.05)) {
+            val samplesNum = ParallelHarmonicCentrality.getSamplesNum(NODES_NUM, maxError)
+            measureMedianMillis("Sampled MS-BFS, max error $maxError, $samplesNum samples, $threadsNum threads") {
+                ParallelHarmonicCentrality(threadsNum).computeApproximately(network, samplesNum)
+            }
+        }
+    }
+
+    @Test
+    fun `incremental harmonic centrality`() {
+        val threadsNum = Runtime.getRuntime().availableProcessors()
+        val network = CompactUndirectedNetwork(NODES_NUM, LINKS_NUM).withRandomLinks(NODES_NUM, LINKS_NUM)
+        val incrementalCentrality = IncrementalHarmonicCentrality(threadsNum).apply { compute(network) }
+        val random = Random(42)
+
+        // Every run inserts new links, so it is an update rather than a repeated computation
+        measureMedianMillis("Incremental MS-BFS after $INSERTED_LINKS_NUM inserted links, $threadsNum threads") {
+            repeat(INSERTED_LINKS_NUM) { network.addLink(random.nextInt(NODES_NUM), random.nextInt(NODES_NUM)) }
+            incrementalCentrality.compute(network)
+        }
+        println("Searched from ${incrementalCentrality.lastSearchedSourcesNum} of $NODES_NUM nodes by the last update")
+    }
+
+    @Test
+    fun `harmonic centrality of a network with many components`() {
+        val sparseNetwork = CompactUndirectedNetwork(NODES_NUM, SPARSE_LINKS_NUM).withRandomLinks(NODES_NUM, SPARSE_LINKS_NUM)
+        for (threadsNum in listOf(1, Runtime.getRuntime().availableProcessors())) {
+            measureMedianMillis("Sparse network, parallel BFS, $threadsNum threads") {
+                ParallelHarmonicCentrality(threadsNum).compute(sparseNetwork)
+            }
+            measureMedianMillis("Sparse network, parallel MS-BFS, $threadsNum threads") {
+                ParallelHarmonicCentrality(threadsNum, isBitParallel = true).compute(sparseNetwork)
+            }
+        }
+    }
+}
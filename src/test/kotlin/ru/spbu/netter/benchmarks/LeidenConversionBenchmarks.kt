@@ -0,0 +1,49 @@
+package ru.spbu.netter.benchmarks
+
+import nl.cwts.networkanalysis.Network as LeidenNetwork
+import org.junit.jupiter.api.Tag
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.TestInstance
+import org.junit.jupiter.api.TestInstance.Lifecycle
+import ru.spbu.netter.controller.clustering.LeidenNetworkAdapter
+import ru.spbu.netter.model.CompactUndirectedNetwork
+import ru.spbu.netter.model.Network
+import ru.spbu.netter.model.UndirectedNetwork
+import ru.spbu.netter.withRandomLinks
+
+
+private const val NODES_NUM = 200_000
+private const val LINKS_NUM = 2_000_000
+
+
+@Tag(BENCHMARK_TAG)
+@TestInstance(Lifecycle.PER_CLASS)
+internal class LeidenConversionBenchmarks {
+    private val network = UndirectedNetwork().withRandomLinks(NODES_NUM, LINKS_NUM)
+    private val compactNetwork = CompactUndirectedNetwork(NODES_NUM, LINKS_NUM).withRandomLinks(NODES_NUM, LINKS_NUM)
+
+    // The conversion used before the adapter: boxed edge indices sorted by a comparator
+    private fun convertThroughEdgeList(network: Network): LeidenNetwork {
+        with(network.links.toTypedArray()) {
+            return LeidenNetwork(
+                network.nodes.size,
+                false,
+                arrayOf(IntArray(size) { this[it].n1.id }, IntArray(size) { this[it].n2.id }),
+                false,
+                false,
+            )
+        }
+    }
+
+    @Test
+    fun `edge list conversion`() {
+        measureMedianMillis("Edge list, UndirectedNetwork") { convertThroughEdgeList(network) }
+        measureMedianMillis("Edge list, CompactUndirectedNetwork") { convertThroughEdgeList(compactNetwork) }
+    }
+
+    @Test
+    fun `adapter conversion`() {
+        measureMedianMillis("Adapter, UndirectedNetwork") { LeidenNetworkAdapter.convert(network) }
+        measureMedianMillis("Adapter, CompactUndirectedNetwork") { LeidenNetworkAdapter.convert(compactNetwork) }
+    }
+}
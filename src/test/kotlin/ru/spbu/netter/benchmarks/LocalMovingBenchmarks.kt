@@ -0,0 +1,49 @@
+package ru.spbu.netter.benchmarks
+
+import nl.cwts.networkanalysis.*
+import org.junit.jupiter.api.Tag
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.TestInstance
+import org.junit.jupiter.api.TestInstance.Lifecycle
+import ru.spbu.netter.controller.clustering.LeidenNetworkAdapter
+import ru.spbu.netter.model.CompactUndirectedNetwork
+import ru.spbu.netter.withRandomLinks
+import java.util.*
+
+
+private const val NODES_NUM = 200_000
+private const val LINKS_NUM = 2_000_000
+
+private const val RESOLUTION = 1e-5
+private const val SEED = 42L
+
+private const val THREADS_NUM = 4
+
+
+@Tag(BENCHMARK_TAG)
+@TestInstance(Lifecycle.PER_CLASS)
+internal class LocalMovingBenchmarks {
+    private val network = LeidenNetworkAdapter.convert(
+        CompactUndirectedNetwork(NODES_NUM, LINKS_NUM).withRandomLinks(NODES_NUM, LINKS_NUM)
+    )
+
+    private fun benchmark(name: String, createAlgorithm: () -> IterativeCPMClusteringAlgorithm) {
+        lateinit var algorithm: IterativeCPMClusteringAlgorithm
+        lateinit var clustering: Clustering
+        measureMedianMillis(name) {
+            algorithm = createAlgorithm()
+            clustering = Clustering(network.nNodes)
+            algorithm.improveClustering(network, clustering)
+        }
+        println("$name: quality %.5f, %d clusters".format(algorithm.calcQuality(network, clustering), clustering.nNodesPerCluster.size))
+    }
+
+    @Test
+    fun `local moving`() {
+        benchmark("Fast local moving") { FastLocalMovingAlgorithm(RESOLUTION, 0, Random(SEED)) }
+        benchmark("Parallel local moving, 1 thread") { ParallelLocalMovingAlgorithm(RESOLUTION, 0, 1, Random(SEED)) }
+        benchmark("Parallel local moving, $THREADS_NUM threads") {
+            ParallelLocalMovingAlgorithm(RESOLUTION, 0, THREADS_NUM, Random(SEED))
+        }
+    }
+}
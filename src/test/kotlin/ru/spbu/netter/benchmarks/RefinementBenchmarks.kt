@@ -0,0 +1,64 @@
+package ru.spbu.netter.benchmarks
+
+import nl.cwts.networkanalysis.*
+import org.junit.jupiter.api.Tag
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.TestInstance
+import org.junit.jupiter.api.TestInstance.Lifecycle
+import ru.spbu.netter.controller.clustering.LeidenNetworkAdapter
+import ru.spbu.netter.model.CompactUndirectedNetwork
+import ru.spbu.netter.withRandomLinks
+import java.util.*
+
+
+private const val NODES_NUM = 200_000
+private const val LINKS_NUM = 2_000_000
+
+private const val RESOLUTION = 1e-5
+private const val RANDOMNESS = 1e-2
+private const val SEED = 42L
+
+
+@Tag(BENCHMARK_TAG)
+@TestInstance(Lifecycle.PER_CLASS)
+internal class RefinementBenchmarks {
+    private val network = LeidenNetworkAdapter.convert(
+        CompactUndirectedNetwork(NODES_NUM, LINKS_NUM).withRandomLinks(NODES_NUM, LINKS_NUM)
+    )
+    private val clustering = Clustering(network.nNodes).also {
+        FastLocalMovingAlgorithm(RESOLUTION, 0, Random(SEED)).improveClustering(network, it)
+    }
+
+    private val localMergingAlgorithm = LocalMergingAlgorithm(RESOLUTION, RANDOMNESS, Random(SEED))
+    private val arena = SubnetworkArena()
+
+    // The refinement used before the arena: a separate network and clustering per cluster
+    private fun refineSubnetworks() {
+        val subnetworks = network.createSubnetworks(clustering)
+        val nodesPerCluster = clustering.nodesPerCluster
+        val refinement = IntArray(network.nNodes)
+        var nClusters = 0
+        for ((i, subnetwork) in subnetworks.withIndex()) {
+            val clusteringSubnetwork = localMergingAlgorithm.findClustering(subnetwork)
+            for ((j, node) in nodesPerCluster[i].withIndex()) refinement[node] = nClusters + clusteringSubnetwork.clusters[j]
+            nClusters += clusteringSubnetwork.nNodesPerCluster.size
+        }
+    }
+
+    private fun refineArena() {
+        arena.fill(network, clustering)
+        for (i in 0 until arena.nSubnetworks) localMergingAlgorithm.findClustering(arena, i)
+    }
+
+    @Test
+    fun `separate subnetworks`() {
+        measureAllocatedBytes("Separate subnetworks", ::refineSubnetworks)
+        measureMedianMillis("Separate subnetworks", action = ::refineSubnetworks)
+    }
+
+    @Test
+    fun `subnetwork arena`() {
+        measureAllocatedBytes("Subnetwork arena", ::refineArena)
+        measureMedianMillis("Subnetwork arena", action = ::refineArena)
+    }
+}
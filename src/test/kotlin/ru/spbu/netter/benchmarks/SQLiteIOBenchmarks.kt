@@ -0,0 +1,42 @@
+package ru.spbu.netter.benchmarks
+
+import org.junit.jupiter.api.Tag
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.TestInstance
+import org.junit.jupiter.api.TestInstance.Lifecycle
+import ru.spbu.netter.controller.io.SQLiteIOHandler
+import ru.spbu.netter.model.CompactUndirectedNetwork
+import ru.spbu.netter.withRandomLinks
+import java.io.File
+
+
+private const val NODES_NUM = 100_000
+private const val LINKS_NUM = 1_000_000
+
+private val OUTPUT_FILE = File("build/test-outputs/sqlite-benchmark.db")
+
+
+@Tag(BENCHMARK_TAG)
+@TestInstance(Lifecycle.PER_CLASS)
+internal class SQLiteIOBenchmarks {
+    private val network = CompactUndirectedNetwork(NODES_NUM, LINKS_NUM).withRandomLinks(NODES_NUM, LINKS_NUM)
+
+    private val sqliteIOHandler = SQLiteIOHandler()
+
+    private fun exportImport(exportNetwork: () -> Unit) {
+        measureMedianMillis("Export", warmUpsNum = 1, runsNum = 3, action = exportNetwork)
+        measureMedianMillis("Import", warmUpsNum = 1, runsNum = 3) {
+            sqliteIOHandler.importNetwork(CompactUndirectedNetwork(NODES_NUM, LINKS_NUM), OUTPUT_FILE)
+        }
+    }
+
+    @Test
+    fun `batched export and import`() {
+        exportImport { sqliteIOHandler.exportNetwork(network, OUTPUT_FILE) }
+    }
+
+    @Test
+    fun `high-throughput export and import`() {
+        exportImport { sqliteIOHandler.exportNetworkHighThroughput(network, OUTPUT_FILE) }
+    }
+}
@@ -0,0 +1,62 @@
+package ru.spbu.netter.benchmarks
+
+import org.junit.jupiter.api.Tag
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.TestInstance
+import org.junit.jupiter.api.TestInstance.Lifecycle
+import ru.spbu.netter.controller.io.TxtIOHandler
+import ru.spbu.netter.model.CompactUndirectedNetwork
+import ru.spbu.netter.model.Network
+import ru.spbu.netter.withRandomLinks
+import java.io.File
+
+
+private const val NODES_NUM = 200_000
+private const val LINKS_NUM = 2_000_000
+
+private val OUTPUT_FILE = File("build/test-outputs/txt-export-benchmark.txt")
+
+
+@Tag(BENCHMARK_TAG)
+@TestInstance(Lifecycle.PER_CLASS)
+internal class TxtExportBenchmarks {
+    private val network = CompactUndirectedNetwork(NODES_NUM, LINKS_NUM).withRandomLinks(NODES_NUM, LINKS_NUM)
+
+    private val txtIOHandler = TxtIOHandler()
+
+    init {
+        OUTPUT_FILE.parentFile.mkdirs()
+    }
+
+    // The export used before the bulk writer: a string per line
+    private fun exportThroughStrings(network: Network) {
+        OUTPUT_FILE.bufferedWriter().use { writer ->
+            for (link in network.links) with(link) {
+                writer.write("${n1.id} ${n2.id}\n")
+            }
+
+            writer.newLine()
+
+            for (entry in network.nodes) with(entry.value) {
+                writer.write(listOf(id, community, centrality, x, y).joinToString(" ", postfix = "\n"))
+            }
+        }
+    }
+
+    @Test
+    fun `string export`() {
+        measureAllocatedBytes("Strings") { exportThroughStrings(network) }
+        measureMedianMillis("Strings") { exportThroughStrings(network) }
+    }
+
+    @Test
+    fun `bulk export`() {
+        measureAllocatedBytes("Bulk") { txtIOHandler.exportNetwork(network, OUTPUT_FILE) }
+        measureMedianMillis("Bulk") { txtIOHandler.exportNetwork(network, OUTPUT_FILE) }
+    }
+
+    @Test
+    fun `gzipped bulk export`() {
+        measureMedianMillis("Gzipped bulk") { txtIOHandler.exportNetworkGzipped(network, OUTPUT_FILE) }
+    }
+}
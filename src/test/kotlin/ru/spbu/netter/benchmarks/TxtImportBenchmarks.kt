@@ -0,0 +1,65 @@
+package ru.spbu.netter.benchmarks
+
+import org.junit.jupiter.api.Tag
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.TestInstance
+import org.junit.jupiter.api.TestInstance.Lifecycle
+import ru.spbu.netter.controller.io.TxtIOHandler
+import ru.spbu.netter.model.CompactUndirectedNetwork
+import ru.spbu.netter.model.Network
+import ru.spbu.netter.withRandomLinks
+import java.io.File
+
+
+private const val NODES_NUM = 200_000
+private const val LINKS_NUM = 2_000_000
+
+private val INPUT_FILE = File("build/test-outputs/txt-import-benchmark.txt")
+
+
+@Tag(BENCHMARK_TAG)
+@TestInstance(Lifecycle.PER_CLASS)
+internal class TxtImportBenchmarks {
+    private val txtIOHandler = TxtIOHandler()
+
+    init {
+        INPUT_FILE.parentFile.mkdirs()
+        txtIOHandler.exportNetwork(CompactUndirectedNetwork().withRandomLinks(NODES_NUM, LINKS_NUM), INPUT_FILE)
+        println("Input file: %.2f MB".format(INPUT_FILE.length() / 1024.0 / 1024.0))
+    }
+
+    // The import used before the memory-mapped reader, without the format checks
+    private fun importThroughStrings(network: Network) {
+        INPUT_FILE.bufferedReader().use { reader ->
+            while (reader.ready()) {
+                val line = reader.readLine()
+                if (line.isEmpty()) break
+                with(line.split(" ")) { network.addLink(this[0].toInt(), this[1].toInt()) }
+            }
+            while (reader.ready()) {
+                val line = reader.readLine()
+                if (line.isEmpty()) break
+                with(line.split(" ")) {
+                    network.addNode(this[0].toInt()).apply {
+                        community = this@with[1].toInt()
+                        centrality = this@with[2].toDouble()
+                        x = this@with[3].toDouble()
+                        y = this@with[4].toDouble()
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    fun `string import`() {
+        measureMedianMillis("Strings") { importThroughStrings(CompactUndirectedNetwork(NODES_NUM, LINKS_NUM)) }
+    }
+
+    @Test
+    fun `memory-mapped import`() {
+        measureMedianMillis("Memory-mapped") {
+            txtIOHandler.importNetwork(CompactUndirectedNetwork(NODES_NUM, LINKS_NUM), INPUT_FILE)
+        }
+    }
+}